@@ -0,0 +1,147 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Input frames for the JMH benchmarks: the first recorded image in a directory, or a
+ * synthetic CenterStage scene when no directory is given, resized to the benchmark resolution.
+ */
+public final class BenchmarkFrames {
+    public static final double DEFAULT_NOISE = 12;
+
+    private static boolean loaded = false;
+
+    private BenchmarkFrames() {
+    }
+
+    public static synchronized void loadOpenCv() {
+        if (!loaded) {
+            System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+            loaded = true;
+        }
+    }
+
+    /**
+     * Parse a "640x480" style resolution into {cols, rows}.
+     */
+    public static int[] parseResolution(String resolution) {
+        String[] parts = resolution.split("x");
+        return new int[] { Integer.parseInt(parts[0]), Integer.parseInt(parts[1]) };
+    }
+
+    /**
+     * An RGBA frame of the given size, from framesDir if it is not empty.
+     */
+    public static Mat frame(String framesDir, String alliance, int cols, int rows) {
+        return frame(framesDir, alliance, cols, rows, DEFAULT_NOISE);
+    }
+
+    /**
+     * As frame(), with the given noise level for the synthetic scene.
+     */
+    public static Mat frame(String framesDir, String alliance, int cols, int rows, double noiseSigma) {
+        Mat reference;
+        if ((framesDir != null) && !framesDir.isEmpty()) {
+            List<File> images = FrameReplay.listImages(new File(framesDir));
+            if (images.isEmpty()) {
+                throw new IllegalArgumentException("no images found in " + framesDir);
+            }
+            reference = FrameReplay.loadFrame(images.get(0));
+        } else {
+            reference = syntheticScene(alliance, noiseSigma);
+        }
+        Mat frame = new Mat();
+        Imgproc.resize(reference, frame, new Size(cols, rows), 0, 0, Imgproc.INTER_LINEAR);
+        reference.release();
+        return frame;
+    }
+
+    /**
+     * 320x240 RGBA scene: gray noisy field, a bare spike mark on the left and
+     * the prop on the center spike mark, in the alliance color.
+     */
+    public static Mat syntheticScene(String alliance) {
+        return syntheticScene(alliance, DEFAULT_NOISE);
+    }
+
+    /**
+     * As syntheticScene(), with gaussian noise of the given sigma on the field. High sigmas
+     * push field pixels into the color bands and leave many small speckles in the mask.
+     */
+    public static Mat syntheticScene(String alliance, double noiseSigma) {
+        Scalar color = "blue".equals(alliance) ? new Scalar(20, 40, 200, 255) : new Scalar(220, 30, 20, 255);
+        Mat scene = new Mat(PropProfile.REFERENCE_ROWS, PropProfile.REFERENCE_COLS, CvType.CV_8UC4, new Scalar(90, 90, 90, 255));
+        Mat noise = new Mat(scene.size(), CvType.CV_8UC4);
+        Core.randn(noise, 0, noiseSigma);
+        Core.add(scene, noise, scene);
+        noise.release();
+        Imgproc.rectangle(scene, new Point(40, 155), new Point(60, 175), color, -1);
+        Imgproc.rectangle(scene, new Point(150, 140), new Point(200, 190), color, -1);
+        return scene;
+    }
+
+    /**
+     * 320x240 RGBA scene for the gold pipeline: gray noisy field, one gold cube and a few
+     * gold speckles too small to count.
+     */
+    public static Mat goldScene() {
+        Scalar gold = new Scalar(230, 190, 20, 255);
+        Mat scene = new Mat(PropProfile.REFERENCE_ROWS, PropProfile.REFERENCE_COLS, CvType.CV_8UC4, new Scalar(90, 90, 90, 255));
+        Mat noise = new Mat(scene.size(), CvType.CV_8UC4);
+        Core.randn(noise, 0, DEFAULT_NOISE);
+        Core.add(scene, noise, scene);
+        noise.release();
+        Imgproc.rectangle(scene, new Point(140, 120), new Point(175, 155), gold, -1);
+        for (int i = 0; i < 8; i++) {
+            int x = 15 + 37 * i;
+            int y = 20 + (i % 4) * 55;
+            Imgproc.rectangle(scene, new Point(x, y), new Point(x + 3, y + 3), gold, -1);
+        }
+        return scene;
+    }
+
+    /**
+     * A still camera sequence of RGBA frames of the given size: every image in framesDir in
+     * order, or count copies of frame() with fresh gaussian sensor noise of sensorSigma
+     * gray levels on every channel.
+     */
+    public static List<Mat> stillSequence(String framesDir, String alliance, int cols, int rows,
+                                          int count, double sensorSigma) {
+        List<Mat> sequence = new ArrayList<>();
+        Size size = new Size(cols, rows);
+        if ((framesDir != null) && !framesDir.isEmpty()) {
+            for (File file : FrameReplay.listImages(new File(framesDir))) {
+                Mat image = FrameReplay.loadFrame(file);
+                Mat frame = new Mat();
+                Imgproc.resize(image, frame, size, 0, 0, Imgproc.INTER_LINEAR);
+                image.release();
+                sequence.add(frame);
+            }
+            if (sequence.isEmpty()) {
+                throw new IllegalArgumentException("no images found in " + framesDir);
+            }
+            return sequence;
+        }
+        Mat still = frame(null, alliance, cols, rows);
+        Mat noise = new Mat(rows, cols * still.channels(), CvType.CV_16S);
+        for (int i = 0; i < count; i++) {
+            Core.randn(noise, 0, sensorSigma);
+            Mat frame = new Mat();
+            Core.add(still, noise.reshape(still.channels()), frame, new Mat(), still.depth());
+            sequence.add(frame);
+        }
+        noise.release();
+        still.release();
+        return sequence;
+    }
+}
@@ -0,0 +1,128 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 3x3 opening plus a pixel count of a full-frame prop mask, with Imgproc.morphologyEx and
+ * Core.countNonZero against BitMask, and row/column projections with Core.reduce against
+ * BitMask. bitOpenCount works on an already packed mask; bitPackOpenCount includes packing
+ * and unpacking, as PropPipeline.MaskCleanup pays it. Noise 40 leaves plenty of specks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitMaskBenchmark {
+
+    @Param({"320x240", "640x480"})
+    public String resolution;
+
+    @Param({"red"})
+    public String alliance;
+
+    // gaussian noise sigma of the synthetic scene
+    @Param({"40"})
+    public double noise;
+
+    // directory of recorded images; empty uses a synthetic scene
+    @Param({""})
+    public String frames;
+
+    private Mat frame;
+    private Mat mask;
+    private Mat opened;
+    private Mat kernel;
+    private Mat rowSums;
+    private Mat colSums;
+    private BitMask packed;
+    private BitMask bits;
+    private int[] rowCounts;
+    private int[] colCounts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkFrames.loadOpenCv();
+        int[] size = BenchmarkFrames.parseResolution(resolution);
+        PropProfile profile = "blue".equals(alliance) ? PropProfile.BLUE : PropProfile.RED;
+        PropPipeline pipeline = new PropPipeline(profile.scaledTo(size[0], size[1]));
+        pipeline.setCropMode(PropPipeline.CropMode.BLANK);
+        frame = BenchmarkFrames.frame(frames, alliance, size[0], size[1], noise);
+        pipeline.init(frame);
+        mask = pipeline.doLinkMask(pipeline.doLinkCropImage(frame)).clone();
+        opened = new Mat(mask.size(), CvType.CV_8U);
+        kernel = Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(3, 3));
+        rowSums = new Mat();
+        colSums = new Mat();
+        packed = new BitMask(mask.cols(), mask.rows());
+        packed.fromMat(mask);
+        bits = new BitMask(mask.cols(), mask.rows());
+        rowCounts = new int[mask.rows()];
+        colCounts = new int[mask.cols()];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        frame.release();
+        mask.release();
+        opened.release();
+        kernel.release();
+        rowSums.release();
+        colSums.release();
+    }
+
+    @Benchmark
+    public int opencvOpenCount() {
+        Imgproc.morphologyEx(mask, opened, Imgproc.MORPH_OPEN, kernel);
+        return Core.countNonZero(opened);
+    }
+
+    @Benchmark
+    public int bitOpenCount() {
+        bits.copyFrom(packed);
+        bits.open(1);
+        return bits.count();
+    }
+
+    @Benchmark
+    public int bitPackOpenCount() {
+        bits.fromMat(mask);
+        bits.open(1);
+        bits.toMat(opened);
+        return bits.count();
+    }
+
+    @Benchmark
+    public Mat opencvProjections() {
+        Core.reduce(mask, rowSums, 1, Core.REDUCE_SUM, CvType.CV_32S);
+        Core.reduce(mask, colSums, 0, Core.REDUCE_SUM, CvType.CV_32S);
+        return colSums;
+    }
+
+    @Benchmark
+    public int[] bitProjections() {
+        packed.rowProjection(rowCounts);
+        packed.columnProjection(colCounts);
+        return colCounts;
+    }
+}
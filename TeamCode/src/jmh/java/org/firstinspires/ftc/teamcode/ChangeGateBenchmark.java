@@ -0,0 +1,79 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.Mat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-frame cost of the prop pipeline on a still camera sequence, with the frame-change gate
+ * off (gate=0) and on. Without a recorded sequence the frames are one synthetic scene with
+ * fresh sensor noise per frame, so no two frames are bit-identical.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChangeGateBenchmark {
+
+    @Param({"320x240", "640x480"})
+    public String resolution;
+
+    @Param({"0", "12"})
+    public double gate;
+
+    @Param({"red"})
+    public String alliance;
+
+    // directory holding one recorded still sequence; empty uses a synthetic one
+    @Param({""})
+    public String frames;
+
+    @Param({"2"})
+    public double sensorNoise;
+
+    private PropPipeline pipeline;
+    private List<Mat> sequence;
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkFrames.loadOpenCv();
+        int[] size = BenchmarkFrames.parseResolution(resolution);
+        PropProfile profile = "blue".equals(alliance) ? PropProfile.BLUE : PropProfile.RED;
+        sequence = BenchmarkFrames.stillSequence(frames, alliance, size[0], size[1], 30, sensorNoise);
+        pipeline = new PropPipeline(profile.scaledTo(size[0], size[1]));
+        pipeline.setChangeGate(gate);
+        pipeline.init(sequence.get(0));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println();
+        System.out.println("gated " + pipeline.getGatedCount() + " of " + next + " frames");
+        for (Mat frame : sequence) {
+            frame.release();
+        }
+    }
+
+    @Benchmark
+    public Mat stillFrame() {
+        Mat frame = sequence.get(next++ % sequence.size());
+        return pipeline.processFrame(frame);
+    }
+}
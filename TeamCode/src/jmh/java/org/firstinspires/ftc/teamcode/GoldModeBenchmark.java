@@ -0,0 +1,79 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole-frame cost of GoldPipeline in the original (CLASSIC) and the FUSED mode, per stream
+ * resolution. FUSED draws onto the frame it is given, so every operation starts from a fresh
+ * copy of the scene; the copy is timed for both modes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GoldModeBenchmark {
+
+    @Param({"320x240", "640x480"})
+    public String resolution;
+
+    @Param({"CLASSIC", "FUSED"})
+    public GoldPipeline.Mode mode;
+
+    @Param({"CONTOURS", "BLOBS"})
+    public ShapeBackend shapes;
+
+    private GoldPipeline gold;
+    private Mat scene;
+    private Mat frame;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkFrames.loadOpenCv();
+        int[] size = BenchmarkFrames.parseResolution(resolution);
+        Mat reference = BenchmarkFrames.goldScene();
+        scene = new Mat();
+        Imgproc.resize(reference, scene, new Size(size[0], size[1]), 0, 0, Imgproc.INTER_LINEAR);
+        reference.release();
+        frame = new Mat();
+        scene.copyTo(frame);
+        gold = new GoldPipeline();
+        gold.setMode(mode);
+        gold.setShapeBackend(shapes);
+        gold.init(frame);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        // CLASSIC keeps the original's pick of the last contour, which may be a speckle
+        if ((mode == GoldPipeline.Mode.FUSED) && !gold.getResult().isFound()) {
+            throw new IllegalStateException("no gold found in the scene");
+        }
+        scene.release();
+        frame.release();
+    }
+
+    @Benchmark
+    public Mat processFrame() {
+        scene.copyTo(frame);
+        return gold.processFrame(frame);
+    }
+}
@@ -0,0 +1,76 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.Mat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Masking of the prop pipeline's cropped image on 1 to 4 threads (row bands, see RowBands),
+ * per stream resolution and mask backend; threads=1 compares the backends. Scaling needs as
+ * many free cores as threads; availableProcessors() is printed at setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MaskThreadsBenchmark {
+
+    @Param({"320x240", "640x480", "1280x720"})
+    public String resolution;
+
+    @Param({"1", "2", "3", "4"})
+    public int threads;
+
+    @Param({"HSV", "RGB_LUT", "CHROMA"})
+    public String backend;
+
+    @Param({"red"})
+    public String alliance;
+
+    // directory of recorded images; empty uses a synthetic scene
+    @Param({""})
+    public String frames;
+
+    private PropPipeline prop;
+    private Mat frame;
+    private Mat crop;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkFrames.loadOpenCv();
+        System.out.println("available processors: " + Runtime.getRuntime().availableProcessors());
+        int[] size = BenchmarkFrames.parseResolution(resolution);
+        PropProfile profile = "blue".equals(alliance) ? PropProfile.BLUE : PropProfile.RED;
+        frame = BenchmarkFrames.frame(frames, alliance, size[0], size[1]);
+        prop = new PropPipeline(profile.scaledTo(size[0], size[1]));
+        prop.setMaskBackend(PropPipeline.MaskBackend.valueOf(backend));
+        prop.setMaskThreads(threads);
+        prop.init(frame);
+        crop = prop.doLinkCropImage(frame);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        frame.release();
+    }
+
+    @Benchmark
+    public Mat mask() {
+        return prop.doLinkMask(crop);
+    }
+}
@@ -0,0 +1,122 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of each doLink* stage of PropPipeline, and of the whole doChain, per alliance
+ * and stream resolution. Every stage gets the output the previous stages produce on the
+ * same frame, so the numbers add up to a frame budget.
+ *
+ * Run with "-prof gc" to get the allocation rate per stage; see src/jmh/readme.md.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropStageBenchmark {
+
+    @Param({"320x240", "640x480", "1280x720"})
+    public String resolution;
+
+    @Param({"red", "blue"})
+    public String alliance;
+
+    // directory of recorded images; empty uses a synthetic scene
+    @Param({""})
+    public String frames;
+
+    private PropPipeline pipeline;
+    private Mat frame;
+    private Mat cropped;
+    private Mat masked;
+    private List<MatOfPoint> contours;
+    private ContourFeatures filtered;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkFrames.loadOpenCv();
+        int[] size = BenchmarkFrames.parseResolution(resolution);
+        PropProfile profile = "blue".equals(alliance) ? PropProfile.BLUE : PropProfile.RED;
+        pipeline = new PropPipeline(profile.scaledTo(size[0], size[1]));
+        frame = BenchmarkFrames.frame(frames, alliance, size[0], size[1]);
+        pipeline.init(frame);
+        pipeline.processFrame(frame);
+        // private copies of each stage's output, so re-running one stage cannot disturb the next one's input
+        cropped = pipeline.doLinkCropImage(frame).clone();
+        masked = pipeline.doLinkInRange(cropped).clone();
+        contours = new ArrayList<>();
+        for (MatOfPoint contour : pipeline.doLinkFindContours(masked)) {
+            MatOfPoint copy = new MatOfPoint();
+            contour.copyTo(copy);
+            contours.add(copy);
+        }
+        filtered = new ContourFeatures();
+        filtered.compute(contours);
+        ContourFeatures pipelineFiltered = pipeline.doLinkFilterContours(contours);
+        for (int k = 0; k < pipelineFiltered.filteredCount(); k++) {
+            filtered.addFiltered(pipelineFiltered.filtered(k));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        frame.release();
+        cropped.release();
+        masked.release();
+        for (MatOfPoint contour : contours) {
+            contour.release();
+        }
+    }
+
+    @Benchmark
+    public Mat cropImage() {
+        return pipeline.doLinkCropImage(frame);
+    }
+
+    @Benchmark
+    public Mat inRange() {
+        return pipeline.doLinkInRange(cropped);
+    }
+
+    @Benchmark
+    public List<MatOfPoint> findContours() {
+        return pipeline.doLinkFindContours(masked);
+    }
+
+    @Benchmark
+    public ContourFeatures filterContours() {
+        return pipeline.doLinkFilterContours(contours);
+    }
+
+    // enclosing circles are cached in the features after the first call, so this is the
+    // classify cost without minEnclosingCircle; chain() includes it
+    @Benchmark
+    public int centerStageProp() {
+        return pipeline.doLinkCenterStageProp(filtered);
+    }
+
+    @Benchmark
+    public int chain() {
+        return pipeline.doChain(frame);
+    }
+}
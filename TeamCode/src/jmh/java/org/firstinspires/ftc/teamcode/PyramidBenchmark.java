@@ -0,0 +1,77 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.Mat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole-frame cost of the prop and gold pipelines with coarse-to-fine masking off (scale 1)
+ * and on (scale 2 and 4), per stream resolution.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PyramidBenchmark {
+
+    @Param({"320x240", "640x480", "1280x720"})
+    public String resolution;
+
+    @Param({"1", "2", "4"})
+    public int scale;
+
+    @Param({"red"})
+    public String alliance;
+
+    // directory of recorded images; empty uses a synthetic scene
+    @Param({""})
+    public String frames;
+
+    private PropPipeline prop;
+    private GoldPipeline gold;
+    private Mat frame;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkFrames.loadOpenCv();
+        int[] size = BenchmarkFrames.parseResolution(resolution);
+        PropProfile profile = "blue".equals(alliance) ? PropProfile.BLUE : PropProfile.RED;
+        frame = BenchmarkFrames.frame(frames, alliance, size[0], size[1]);
+        prop = new PropPipeline(profile.scaledTo(size[0], size[1]));
+        prop.setPyramidScale(scale);
+        prop.init(frame);
+        gold = new GoldPipeline();
+        gold.setPyramidScale(scale);
+        gold.init(frame);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        frame.release();
+    }
+
+    @Benchmark
+    public int propChain() {
+        return prop.doChain(frame);
+    }
+
+    @Benchmark
+    public Mat gold() {
+        return gold.processFrame(frame);
+    }
+}
@@ -0,0 +1,106 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole-frame cost of the prop and gold pipelines with the display overlay rendered
+ * (liveView=true, what every frame paid before rendering was separated) and skipped.
+ * The difference is the rendering cost; the RENDER stage of StageLatencies shows the rest.
+ * Every operation starts from a fresh copy of the scene, since pipelines may draw onto it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+
+    @Param({"320x240", "640x480"})
+    public String resolution;
+
+    @Param({"true", "false"})
+    public boolean liveView;
+
+    @Param({"CONTOURS", "BLOBS"})
+    public ShapeBackend shapes;
+
+    @Param({"red"})
+    public String alliance;
+
+    private PropPipeline prop;
+    private GoldPipeline classic;
+    private GoldPipeline fused;
+    private Mat propScene;
+    private Mat goldScene;
+    private Mat frame;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkFrames.loadOpenCv();
+        int[] size = BenchmarkFrames.parseResolution(resolution);
+        PropProfile profile = "blue".equals(alliance) ? PropProfile.BLUE : PropProfile.RED;
+        propScene = BenchmarkFrames.frame("", alliance, size[0], size[1]);
+        Mat reference = BenchmarkFrames.goldScene();
+        goldScene = new Mat();
+        Imgproc.resize(reference, goldScene, new Size(size[0], size[1]), 0, 0, Imgproc.INTER_LINEAR);
+        reference.release();
+        frame = propScene.clone();
+
+        prop = new PropPipeline(profile.scaledTo(size[0], size[1]));
+        prop.setShapeBackend(shapes);
+        prop.setLiveView(liveView);
+        prop.init(frame);
+        classic = new GoldPipeline();
+        classic.setShapeBackend(shapes);
+        classic.setLiveView(liveView);
+        classic.init(frame);
+        fused = new GoldPipeline();
+        fused.setMode(GoldPipeline.Mode.FUSED);
+        fused.setShapeBackend(shapes);
+        fused.setLiveView(liveView);
+        fused.init(frame);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        propScene.release();
+        goldScene.release();
+        frame.release();
+    }
+
+    @Benchmark
+    public Mat prop() {
+        propScene.copyTo(frame);
+        return prop.processFrame(frame);
+    }
+
+    @Benchmark
+    public Mat goldClassic() {
+        goldScene.copyTo(frame);
+        return classic.processFrame(frame);
+    }
+
+    @Benchmark
+    public Mat goldFused() {
+        goldScene.copyTo(frame);
+        return fused.processFrame(frame);
+    }
+}
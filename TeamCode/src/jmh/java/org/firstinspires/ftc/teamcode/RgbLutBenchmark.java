@@ -0,0 +1,94 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Masking a whole frame with the profile's bands by cvtColor + inRange (one inRange per band,
+ * OR'ed) against one RgbLutClassifier lookup per pixel, per resolution, alliance and table
+ * size. RgbLutCheck checks that the two masks agree on recorded images.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RgbLutBenchmark {
+
+    @Param({"320x240", "640x480"})
+    public String resolution;
+
+    @Param({"red", "blue"})
+    public String alliance;
+
+    // bits per channel of the lookup table
+    @Param({"6", "7"})
+    public int bits;
+
+    // directory of recorded images; empty uses a synthetic scene
+    @Param({""})
+    public String frames;
+
+    private List<HsvBand> bands;
+    private RgbLutClassifier classifier;
+    private Mat frame;
+    private Mat hsv;
+    private Mat band;
+    private Mat mask;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkFrames.loadOpenCv();
+        int[] size = BenchmarkFrames.parseResolution(resolution);
+        bands = ("blue".equals(alliance) ? PropProfile.BLUE : PropProfile.RED).bands;
+        classifier = new RgbLutClassifier(bands, bits);
+        frame = BenchmarkFrames.frame(frames, alliance, size[0], size[1]);
+        hsv = new Mat();
+        band = new Mat();
+        mask = new Mat(frame.rows(), frame.cols(), CvType.CV_8U);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        frame.release();
+        hsv.release();
+        band.release();
+        mask.release();
+    }
+
+    @Benchmark
+    public Mat hsv() {
+        Imgproc.cvtColor(frame, hsv, Imgproc.COLOR_RGB2HSV);
+        Core.inRange(hsv, bands.get(0).lower(), bands.get(0).upper(), mask);
+        for (int i = 1; i < bands.size(); i++) {
+            Core.inRange(hsv, bands.get(i).lower(), bands.get(i).upper(), band);
+            Core.bitwise_or(mask, band, mask);
+        }
+        return mask;
+    }
+
+    @Benchmark
+    public Mat lut() {
+        classifier.classify(frame, mask);
+        return mask;
+    }
+}
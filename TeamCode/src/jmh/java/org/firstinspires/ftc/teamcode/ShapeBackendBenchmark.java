@@ -0,0 +1,85 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.Mat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shape extraction with findContours(RETR_TREE) + contour features against one
+ * connectedComponentsWithStats pass and against labeling the mask's runs (RunLengthMask),
+ * from the same mask, per resolution and noise level. Noisier scenes leave more speckles in
+ * the mask, which is where the contour path slows down.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShapeBackendBenchmark {
+
+    @Param({"320x240", "640x480", "1280x720"})
+    public String resolution;
+
+    @Param({"red"})
+    public String alliance;
+
+    // gaussian noise sigma of the synthetic scene
+    @Param({"12", "40"})
+    public double noise;
+
+    // directory of recorded images; empty uses a synthetic scene
+    @Param({""})
+    public String frames;
+
+    private PropPipeline pipeline;
+    private Mat frame;
+    private Mat masked;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkFrames.loadOpenCv();
+        int[] size = BenchmarkFrames.parseResolution(resolution);
+        PropProfile profile = "blue".equals(alliance) ? PropProfile.BLUE : PropProfile.RED;
+        pipeline = new PropPipeline(profile.scaledTo(size[0], size[1]));
+        frame = BenchmarkFrames.frame(frames, alliance, size[0], size[1], noise);
+        pipeline.init(frame);
+        pipeline.processFrame(frame);
+        // leaves the binary mask of this frame in the pipeline, for doLinkFindBlobs/Runs
+        masked = pipeline.doLinkInRange(pipeline.doLinkCropImage(frame)).clone();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        masked.release();
+        frame.release();
+    }
+
+    @Benchmark
+    public ContourFeatures contours() {
+        return pipeline.doLinkFilterContours(pipeline.doLinkFindContours(masked));
+    }
+
+    @Benchmark
+    public ContourFeatures blobs() {
+        return pipeline.doLinkFilterFeatures(pipeline.doLinkFindBlobs());
+    }
+
+    @Benchmark
+    public ContourFeatures runs() {
+        return pipeline.doLinkFilterFeatures(pipeline.doLinkFindRuns());
+    }
+}
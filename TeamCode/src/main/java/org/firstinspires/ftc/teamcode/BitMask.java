@@ -0,0 +1,299 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.Mat;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Binary mask with one bit per pixel: 64 pixels per long, one long array per row. Pixel x of
+ * a row is bit (x & 63) of word (x >> 6); bits past the last column are always 0.
+ *
+ * Erosion and dilation by a 3x3 square take a handful of shifts and ANDs/ORs per 64 pixels
+ * instead of nine byte reads per pixel, and match Imgproc.erode/dilate with the default
+ * border: pixels outside the mask never erode anything and never dilate into it. count(),
+ * of the whole mask or of a rectangle, and rowProjection()/columnProjection() use
+ * Long.bitCount.
+ *
+ * fromMat()/toMat() pack and unpack 0/255 CV_8U masks, as inRange and threshold leave them.
+ */
+public class BitMask {
+    // the high bits of 8 bytes gathered into the top byte, byte i to bit i
+    private static final long GATHER = 0x0002040810204081L;
+    // 8 pixels as 8 bytes of 0 or 255, for every byte of a word
+    private static final long[] SPREAD = new long[256];
+
+    static {
+        for (int b = 0; b < 256; b++) {
+            long bytes = 0;
+            for (int i = 0; i < 8; i++) {
+                if ((b & (1 << i)) != 0) {
+                    bytes |= 0xFFL << (8 * i);
+                }
+            }
+            SPREAD[b] = bytes;
+        }
+    }
+
+    private final int cols;
+    private final int rows;
+    private final int words;      // longs per row
+    private final long lastWord;  // valid bits of the last word of a row
+    private final long[][] bits;
+    private final long[][] scratch;
+    private byte[] bytes = new byte[0];
+    private ByteBuffer byteBuffer;  // little endian view of bytes, 8 pixels per getLong()
+
+    public BitMask(int cols, int rows) {
+        if ((cols < 1) || (rows < 1)) {
+            throw new IllegalArgumentException("mask must be at least 1x1, was " + cols + "x" + rows);
+        }
+        this.cols = cols;
+        this.rows = rows;
+        this.words = (cols + 63) >>> 6;
+        this.lastWord = ((cols & 63) == 0) ? -1L : ((1L << (cols & 63)) - 1);
+        this.bits = new long[rows][words];
+        this.scratch = new long[rows][words];
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public boolean get(int x, int y) {
+        return (bits[y][x >>> 6] & (1L << x)) != 0;
+    }
+
+    public void set(int x, int y, boolean value) {
+        if (value) {
+            bits[y][x >>> 6] |= 1L << x;
+        } else {
+            bits[y][x >>> 6] &= ~(1L << x);
+        }
+    }
+
+    public void clear() {
+        for (long[] row : bits) {
+            Arrays.fill(row, 0L);
+        }
+    }
+
+    /**
+     * Copy the pixels of another mask of the same size.
+     */
+    public void copyFrom(BitMask other) {
+        if ((other.cols != cols) || (other.rows != rows)) {
+            throw new IllegalArgumentException("mask is " + other.cols + "x" + other.rows
+                    + ", expected " + cols + "x" + rows);
+        }
+        for (int y = 0; y < rows; y++) {
+            System.arraycopy(other.bits[y], 0, bits[y], 0, words);
+        }
+    }
+
+    /**
+     * Pack a 0/255 CV_8U mask of this size (it may be a submat view); 128 and up is set.
+     */
+    public void fromMat(Mat mask) {
+        checkSize(mask);
+        ensureBytes();
+        mask.get(0, 0, bytes);
+        for (int y = 0, p = 0; y < rows; y++, p += cols) {
+            long[] row = bits[y];
+            Arrays.fill(row, 0L);
+            int x = 0;
+            // 8 pixels at a time; a group never straddles two words
+            for (; x + 8 <= cols; x += 8) {
+                long group = byteBuffer.getLong(p + x) & 0x8080808080808080L;
+                row[x >>> 6] |= ((group * GATHER) >>> 56) << x;
+            }
+            for (; x < cols; x++) {
+                row[x >>> 6] |= ((long) (bytes[p + x] >>> 31) & 1L) << x;
+            }
+        }
+    }
+
+    /**
+     * Unpack into a CV_8U mask of this size (it may be a submat view): 255 where set.
+     */
+    public void toMat(Mat mask) {
+        checkSize(mask);
+        ensureBytes();
+        for (int y = 0, p = 0; y < rows; y++, p += cols) {
+            long[] row = bits[y];
+            int x = 0;
+            for (; x + 8 <= cols; x += 8) {
+                byteBuffer.putLong(p + x, SPREAD[(int) (row[x >>> 6] >>> x) & 0xFF]);
+            }
+            for (; x < cols; x++) {
+                bytes[p + x] = (byte) -((row[x >>> 6] >>> x) & 1L);
+            }
+        }
+        mask.put(0, 0, bytes);
+    }
+
+    private void ensureBytes() {
+        if (bytes.length != rows * cols) {
+            bytes = new byte[rows * cols];
+            byteBuffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    private void checkSize(Mat mask) {
+        if ((mask.cols() != cols) || (mask.rows() != rows)) {
+            throw new IllegalArgumentException("mask is " + mask.cols() + "x" + mask.rows()
+                    + ", expected " + cols + "x" + rows);
+        }
+    }
+
+    /**
+     * Erode by a 3x3 square, iterations times.
+     */
+    public void erode(int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            morph(true);
+        }
+    }
+
+    /**
+     * Dilate by a 3x3 square, iterations times.
+     */
+    public void dilate(int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            morph(false);
+        }
+    }
+
+    /**
+     * Erode then dilate: removes specks smaller than the square, as MORPH_OPEN.
+     */
+    public void open(int iterations) {
+        erode(iterations);
+        dilate(iterations);
+    }
+
+    /**
+     * Dilate then erode: fills holes smaller than the square, as MORPH_CLOSE.
+     */
+    public void close(int iterations) {
+        dilate(iterations);
+        erode(iterations);
+    }
+
+    /**
+     * One 3x3 pass: horizontal neighbors into scratch, then vertical neighbors back into bits.
+     * For erosion everything outside the mask counts as set, for dilation as clear.
+     */
+    private void morph(boolean erode) {
+        long outside = erode ? -1L : 0L;
+        long pad = ~lastWord;  // bits past the last column
+        for (int y = 0; y < rows; y++) {
+            long[] src = bits[y];
+            long[] dst = scratch[y];
+            long prev = outside;
+            for (int w = 0; w < words; w++) {
+                long word = src[w];
+                long next = (w + 1 < words) ? src[w + 1] : outside;
+                if (w + 1 == words) {
+                    // padding bits stand in for the pixels right of the last column
+                    word = erode ? (word | pad) : (word & lastWord);
+                }
+                long left = (word << 1) | (prev >>> 63);   // pixel x-1 at bit x
+                long right = (word >>> 1) | (next << 63);  // pixel x+1 at bit x
+                dst[w] = erode ? (word & left & right) : (word | left | right);
+                prev = word;
+            }
+        }
+        for (int y = 0; y < rows; y++) {
+            long[] up = (y > 0) ? scratch[y - 1] : null;
+            long[] row = scratch[y];
+            long[] down = (y + 1 < rows) ? scratch[y + 1] : null;
+            long[] dst = bits[y];
+            for (int w = 0; w < words; w++) {
+                long u = (up != null) ? up[w] : outside;
+                long d = (down != null) ? down[w] : outside;
+                dst[w] = erode ? (u & row[w] & d) : (u | row[w] | d);
+            }
+            dst[words - 1] &= lastWord;
+        }
+    }
+
+    /**
+     * Set pixels in the whole mask.
+     */
+    public int count() {
+        int total = 0;
+        for (long[] row : bits) {
+            for (long word : row) {
+                total += Long.bitCount(word);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Set pixels in [x0, x1) x [y0, y1), clipped to the mask.
+     */
+    public int count(int x0, int y0, int x1, int y1) {
+        x0 = Math.max(0, x0);
+        y0 = Math.max(0, y0);
+        x1 = Math.min(cols, x1);
+        y1 = Math.min(rows, y1);
+        if ((x0 >= x1) || (y0 >= y1)) {
+            return 0;
+        }
+        int firstWord = x0 >>> 6;
+        int lastWordIndex = (x1 - 1) >>> 6;
+        long firstBits = -1L << x0;              // bits >= x0 & 63
+        long lastBits = -1L >>> (63 - ((x1 - 1) & 63));  // bits <= (x1 - 1) & 63
+        int total = 0;
+        for (int y = y0; y < y1; y++) {
+            long[] row = bits[y];
+            if (firstWord == lastWordIndex) {
+                total += Long.bitCount(row[firstWord] & firstBits & lastBits);
+                continue;
+            }
+            total += Long.bitCount(row[firstWord] & firstBits);
+            for (int w = firstWord + 1; w < lastWordIndex; w++) {
+                total += Long.bitCount(row[w]);
+            }
+            total += Long.bitCount(row[lastWordIndex] & lastBits);
+        }
+        return total;
+    }
+
+    /**
+     * Set pixels per row into counts[0..rows).
+     */
+    public void rowProjection(int[] counts) {
+        for (int y = 0; y < rows; y++) {
+            int total = 0;
+            for (long word : bits[y]) {
+                total += Long.bitCount(word);
+            }
+            counts[y] = total;
+        }
+    }
+
+    /**
+     * Set pixels per column into counts[0..cols).
+     */
+    public void columnProjection(int[] counts) {
+        Arrays.fill(counts, 0, cols, 0);
+        for (long[] row : bits) {
+            for (int w = 0; w < words; w++) {
+                long word = row[w];
+                int base = w << 6;
+                while (word != 0) {
+                    counts[base + Long.numberOfTrailingZeros(word)]++;
+                    word &= word - 1;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * Extracts area, bounding box and centroid of every 8-connected blob in a binary mask with
+ * one Imgproc.connectedComponentsWithStats pass, straight into a ContourFeatures.
+ *
+ * Blob pixel counts run larger than the polygon area findContours reports for the same shape,
+ * since the contour runs through the centers of the edge pixels: by about half the perimeter.
+ * So that the profiles' contour area thresholds apply to both backends, areas are reported as
+ * contourArea(pixels, width, height), the pixel count less half the bounding box perimeter;
+ * on recorded prop frames that lands within 2% of the contour areas. There is no traced
+ * outline, so the perimeter is estimated as the bounding box perimeter, and the enclosing
+ * circle as the centroid plus half the bounding box diagonal. Holes inside a blob are not
+ * separate shapes.
+ */
+public class BlobExtractor {
+    private final Mat labels    = new Mat();
+    private final Mat stats     = new Mat();
+    private final Mat centroids = new Mat();
+    private int[] statsBuf = new int[0];
+    private double[] centroidBuf = new double[0];
+
+    /**
+     * Fill features with every blob in mask (CV_8U, nonzero = foreground), shifting
+     * coordinates by (offsetX, offsetY). Returns the number of blobs.
+     */
+    public int extract(Mat mask, ContourFeatures features, int offsetX, int offsetY) {
+        int labelCount = Imgproc.connectedComponentsWithStats(mask, labels, stats, centroids, 8, CvType.CV_32S);
+        int blobs = Math.max(0, labelCount - 1);  // label 0 is the background
+        if (statsBuf.length < labelCount * Imgproc.CC_STAT_MAX) {
+            statsBuf = new int[labelCount * Imgproc.CC_STAT_MAX * 2];
+            centroidBuf = new double[labelCount * 2 * 2];
+        }
+        if (labelCount > 0) {
+            stats.get(0, 0, statsBuf);
+            centroids.get(0, 0, centroidBuf);
+        }
+        features.reset(blobs);
+        for (int i = 0; i < blobs; i++) {
+            int s = (i + 1) * Imgproc.CC_STAT_MAX;
+            int c = (i + 1) * 2;
+            int width  = statsBuf[s + Imgproc.CC_STAT_WIDTH];
+            int height = statsBuf[s + Imgproc.CC_STAT_HEIGHT];
+            features.set(i,
+                    contourArea(statsBuf[s + Imgproc.CC_STAT_AREA], width, height),
+                    2.0 * (width + height),
+                    statsBuf[s + Imgproc.CC_STAT_LEFT] + offsetX,
+                    statsBuf[s + Imgproc.CC_STAT_TOP] + offsetY,
+                    width,
+                    height,
+                    centroidBuf[c] + offsetX,
+                    centroidBuf[c + 1] + offsetY);
+        }
+        return blobs;
+    }
+
+    /**
+     * Contour polygon area equivalent of a blob of pixels pixels in a width x height box: a
+     * w x h rectangle of pixels has a contour of (w - 1) x (h - 1).
+     */
+    public static double contourArea(long pixels, int width, int height) {
+        return Math.max(0, pixels - width - height + 1);
+    }
+
+    public void release() {
+        labels.release();
+        stats.release();
+        centroids.release();
+    }
+}
@@ -0,0 +1,208 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Geometry of the coarse-to-fine mask mode shared by the pipelines: the image is shrunk by
+ * scale (2 or 4) in each direction, the pipeline masks the small image into getCoarseMask(),
+ * and the blobs of that coarse mask become candidate regions in full-resolution coordinates.
+ * The pipeline then masks only those regions at full resolution, so centroids and areas
+ * come from full-resolution pixels while the color conversion of the rest of the image is
+ * skipped.
+ *
+ * The shrink samples every scale-th pixel (INTER_NEAREST); averaging resizes cost more than
+ * the HSV conversion they save at scale 4. Each candidate is the blob's bounding box scaled
+ * up and padded by one coarse pixel, so edge pixels between the samples are still refined.
+ * Blobs whose full-resolution area estimate is below minArea / 2 are ignored.
+ *
+ * candidateView() hands out submat views of the candidate regions and keeps them for the
+ * next frame, so a still scene masks the same regions without creating a view per buffer
+ * and candidate every frame; getViewsCreated() counts the views it had to (re)create.
+ */
+public class CoarseToFine {
+    private final int scale;
+    private final Mat coarseMat  = new Mat();
+    private final Mat coarseMask = new Mat();
+    private final Size coarseSize = new Size();
+    private final BlobExtractor blobs = new BlobExtractor();
+    private final ContourFeatures coarseFeatures = new ContourFeatures();
+    private final List<Rect> candidates = new ArrayList<>();
+    private int candidateCount = 0;
+    private long refinedPixels = 0;
+    private final List<CandidateView[]> views = new ArrayList<>();  // [candidate][slot]
+    private int viewsCreated = 0;
+
+    /**
+     * Submat view of one buffer over one candidate region, valid while both stay the same.
+     */
+    private static final class CandidateView {
+        final Rect rect = new Rect();
+        Mat view;
+        Mat parent;
+        long parentAddr;
+
+        void release() {
+            if (view != null) {
+                view.release();
+            }
+            view = null;
+            parent = null;
+            parentAddr = 0;
+        }
+    }
+
+    public CoarseToFine(int scale) {
+        if ((scale != 2) && (scale != 4)) {
+            throw new IllegalArgumentException("scale must be 2 or 4, was " + scale);
+        }
+        this.scale = scale;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    /**
+     * Shrink src by the scale; returns the coarse image, which stays valid until the next call.
+     */
+    public Mat downscale(Mat src) {
+        coarseSize.width  = Math.max(1, src.cols() / scale);
+        coarseSize.height = Math.max(1, src.rows() / scale);
+        Imgproc.resize(src, coarseMat, coarseSize, 0, 0, Imgproc.INTER_NEAREST);
+        coarseMask.create(coarseMat.rows(), coarseMat.cols(), CvType.CV_8U);
+        return coarseMat;
+    }
+
+    /**
+     * CV_8U mask the caller fills from the coarse image before findCandidates().
+     */
+    public Mat getCoarseMask() {
+        return coarseMask;
+    }
+
+    /**
+     * Turn the blobs of the coarse mask into candidate regions of a cols x rows
+     * full-resolution image. Returns the number of candidates.
+     */
+    public int findCandidates(double minArea, int cols, int rows) {
+        int count = blobs.extract(coarseMask, coarseFeatures, 0, 0);
+        viewsCreated = 0;
+        double minCoarseArea = minArea / 2 / (scale * scale);
+        candidateCount = 0;
+        refinedPixels = 0;
+        for (int i = 0; i < count; i++) {
+            // back from the contour-equivalent area to the coarse pixel count
+            double coarsePixels = coarseFeatures.area(i) + coarseFeatures.rectWidth(i) + coarseFeatures.rectHeight(i) - 1;
+            if (coarsePixels < minCoarseArea) {
+                continue;
+            }
+            int x0 = Math.max(0, (coarseFeatures.rectX(i) - 1) * scale);
+            int y0 = Math.max(0, (coarseFeatures.rectY(i) - 1) * scale);
+            int x1 = Math.min(cols, (coarseFeatures.rectX(i) + coarseFeatures.rectWidth(i) + 1) * scale);
+            int y1 = Math.min(rows, (coarseFeatures.rectY(i) + coarseFeatures.rectHeight(i) + 1) * scale);
+            if ((x1 <= x0) || (y1 <= y0)) {
+                continue;
+            }
+            if (candidates.size() <= candidateCount) {
+                candidates.add(new Rect());
+            }
+            Rect rect = candidates.get(candidateCount++);
+            rect.x = x0;
+            rect.y = y0;
+            rect.width  = x1 - x0;
+            rect.height = y1 - y0;
+            refinedPixels += (long) rect.width * rect.height;
+        }
+        return candidateCount;
+    }
+
+    /**
+     * Full-resolution region of candidate i; regions of neighboring blobs may overlap.
+     */
+    public Rect candidate(int i) {
+        return candidates.get(i);
+    }
+
+    /**
+     * View of parent (a full-resolution buffer) over candidate i's region. slot tells apart
+     * the buffers masked per candidate (0, 1, ...); the view is reused on later frames as long
+     * as slot i gets the same parent, with the same data, and the same region. It stays owned
+     * here: callers must not release it.
+     */
+    public Mat candidateView(int i, int slot, Mat parent) {
+        while (views.size() <= i) {
+            views.add(new CandidateView[0]);
+        }
+        CandidateView[] slots = views.get(i);
+        if (slots.length <= slot) {
+            slots = Arrays.copyOf(slots, slot + 1);
+            views.set(i, slots);
+        }
+        if (slots[slot] == null) {
+            slots[slot] = new CandidateView();
+        }
+        CandidateView cached = slots[slot];
+        Rect rect = candidates.get(i);
+        if ((cached.view == null) || (cached.parent != parent) || (cached.parentAddr != parent.dataAddr())
+                || !cached.rect.equals(rect)) {
+            cached.release();
+            cached.view = parent.submat(rect);
+            cached.parent = parent;
+            cached.parentAddr = parent.dataAddr();
+            cached.rect.x = rect.x;
+            cached.rect.y = rect.y;
+            cached.rect.width = rect.width;
+            cached.rect.height = rect.height;
+            viewsCreated++;
+        }
+        return cached.view;
+    }
+
+    /**
+     * Candidate views candidateView() created since the last findCandidates(); 0 while the
+     * candidate regions and buffers stay the same.
+     */
+    public int getViewsCreated() {
+        return viewsCreated;
+    }
+
+    /**
+     * Release the cached candidate views, e.g. when the buffers they view are reallocated.
+     */
+    public void releaseViews() {
+        for (CandidateView[] slots : views) {
+            for (CandidateView cached : slots) {
+                if (cached != null) {
+                    cached.release();
+                }
+            }
+        }
+        views.clear();
+    }
+
+    public int getCandidateCount() {
+        return candidateCount;
+    }
+
+    /**
+     * Pixels covered by the candidate regions of the last frame, overlaps counted twice.
+     */
+    public long getRefinedPixels() {
+        return refinedPixels;
+    }
+
+    public void release() {
+        coarseMat.release();
+        coarseMask.release();
+        blobs.release();
+        releaseViews();
+    }
+}
@@ -0,0 +1,250 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.CvType;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.Point;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.List;
+
+/**
+ * Shape features of every contour in a frame, computed once and kept in reusable primitive
+ * arrays indexed by contour: area, perimeter, bounding rect, centroid and enclosing circle.
+ *
+ * compute() copies each contour's points out of native memory once and derives area
+ * (shoelace, same as Imgproc.contourArea), perimeter (same as Imgproc.arcLength closed),
+ * bounding rect and centroid (same as Imgproc.moments) in Java. The enclosing circle still
+ * needs Imgproc.minEnclosingCircle, so it is only computed for contours that ask for it.
+ * A filtered subset of contour indices can be kept alongside the features.
+ */
+public class ContourFeatures {
+    private int count = 0;
+    private int capacity = 0;
+    private double[] area;
+    private double[] perimeter;
+    private int[] rectX;
+    private int[] rectY;
+    private int[] rectWidth;
+    private int[] rectHeight;
+    private double[] centroidX;
+    private double[] centroidY;
+    private double[] circleX;
+    private double[] circleY;
+    private double[] circleRadius;
+    private boolean[] hasCircle;
+    private int[] filtered;
+    private int filteredCount = 0;
+
+    private List<MatOfPoint> contours;
+    private int[] points = new int[256];
+    private final MatOfPoint2f contour2f = new MatOfPoint2f();
+    private final Point circleCenter = new Point();
+    private final float[] radius = new float[1];
+
+    public ContourFeatures() {
+        ensureCapacity(16);
+    }
+
+    private void ensureCapacity(int n) {
+        if (n <= capacity) {
+            return;
+        }
+        int size = Math.max(n, capacity * 2);
+        area         = new double[size];
+        perimeter    = new double[size];
+        rectX        = new int[size];
+        rectY        = new int[size];
+        rectWidth    = new int[size];
+        rectHeight   = new int[size];
+        centroidX    = new double[size];
+        centroidY    = new double[size];
+        circleX      = new double[size];
+        circleY      = new double[size];
+        circleRadius = new double[size];
+        hasCircle    = new boolean[size];
+        filtered     = new int[size];
+        capacity = size;
+    }
+
+    /**
+     * Start a new frame with room for n shapes and no filtered subset.
+     * Used by compute(), and by other shape backends that fill the arrays with set().
+     */
+    public void reset(int n) {
+        ensureCapacity(n);
+        contours = null;
+        count = n;
+        filteredCount = 0;
+    }
+
+    /**
+     * Compute area, perimeter, bounding rect and centroid of every contour.
+     */
+    public void compute(List<MatOfPoint> contours) {
+        reset(contours.size());
+        this.contours = contours;
+        for (int i = 0; i < count; i++) {
+            MatOfPoint contour = contours.get(i);
+            int n = contour.rows();
+            if (points.length < n * 2) {
+                points = new int[Math.max(n * 2, points.length * 2)];
+            }
+            contour.get(0, 0, points);
+
+            double a = 0;
+            double cx = 0;
+            double cy = 0;
+            double len = 0;
+            int minX = Integer.MAX_VALUE;
+            int minY = Integer.MAX_VALUE;
+            int maxX = Integer.MIN_VALUE;
+            int maxY = Integer.MIN_VALUE;
+            double sumX = 0;
+            double sumY = 0;
+            for (int k = 0; k < n; k++) {
+                int x0 = points[2*k];
+                int y0 = points[2*k+1];
+                int next = (k + 1 < n) ? k + 1 : 0;
+                int x1 = points[2*next];
+                int y1 = points[2*next+1];
+                double cross = (double) x0 * y1 - (double) x1 * y0;
+                a  += cross;
+                cx += (x0 + x1) * cross;
+                cy += (y0 + y1) * cross;
+                len += Math.sqrt((double) (x1 - x0) * (x1 - x0) + (double) (y1 - y0) * (y1 - y0));
+                minX = Math.min(minX, x0);
+                minY = Math.min(minY, y0);
+                maxX = Math.max(maxX, x0);
+                maxY = Math.max(maxY, y0);
+                sumX += x0;
+                sumY += y0;
+            }
+            area[i] = Math.abs(a) / 2;
+            perimeter[i] = (n > 1) ? len : 0;
+            if (n > 0) {
+                rectX[i] = minX;
+                rectY[i] = minY;
+                rectWidth[i]  = maxX - minX + 1;
+                rectHeight[i] = maxY - minY + 1;
+            } else {
+                rectX[i] = rectY[i] = rectWidth[i] = rectHeight[i] = 0;
+            }
+            if (a != 0) {
+                centroidX[i] = cx / (3 * a);
+                centroidY[i] = cy / (3 * a);
+            } else if (n > 0) {
+                centroidX[i] = sumX / n;
+                centroidY[i] = sumY / n;
+            } else {
+                centroidX[i] = centroidY[i] = 0;
+            }
+            hasCircle[i] = false;
+        }
+    }
+
+    /**
+     * Fill shape i directly, for backends that do not produce contours. The enclosing circle
+     * is approximated by the centroid and half the bounding rect diagonal.
+     */
+    public void set(int i, double area, double perimeter, int x, int y, int width, int height,
+                    double centroidX, double centroidY) {
+        this.area[i] = area;
+        this.perimeter[i] = perimeter;
+        this.rectX[i] = x;
+        this.rectY[i] = y;
+        this.rectWidth[i] = width;
+        this.rectHeight[i] = height;
+        this.centroidX[i] = centroidX;
+        this.centroidY[i] = centroidY;
+        this.circleX[i] = centroidX;
+        this.circleY[i] = centroidY;
+        this.circleRadius[i] = Math.sqrt((double) width * width + (double) height * height) / 2;
+        this.hasCircle[i] = true;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public double area(int i) {
+        return area[i];
+    }
+
+    public double perimeter(int i) {
+        return perimeter[i];
+    }
+
+    public int rectX(int i) {
+        return rectX[i];
+    }
+
+    public int rectY(int i) {
+        return rectY[i];
+    }
+
+    public int rectWidth(int i) {
+        return rectWidth[i];
+    }
+
+    public int rectHeight(int i) {
+        return rectHeight[i];
+    }
+
+    public double centroidX(int i) {
+        return centroidX[i];
+    }
+
+    public double centroidY(int i) {
+        return centroidY[i];
+    }
+
+    public double circleX(int i) {
+        computeCircle(i);
+        return circleX[i];
+    }
+
+    public double circleY(int i) {
+        computeCircle(i);
+        return circleY[i];
+    }
+
+    public double circleRadius(int i) {
+        computeCircle(i);
+        return circleRadius[i];
+    }
+
+    private void computeCircle(int i) {
+        if (hasCircle[i]) {
+            return;
+        }
+        contours.get(i).convertTo(contour2f, CvType.CV_32F);
+        Imgproc.minEnclosingCircle(contour2f, circleCenter, radius);
+        circleX[i] = circleCenter.x;
+        circleY[i] = circleCenter.y;
+        circleRadius[i] = radius[0];
+        hasCircle[i] = true;
+    }
+
+    /**
+     * Drop the filtered subset, before adding to it again.
+     */
+    public void clearFiltered() {
+        filteredCount = 0;
+    }
+
+    public void addFiltered(int i) {
+        filtered[filteredCount++] = i;
+    }
+
+    public int filteredCount() {
+        return filteredCount;
+    }
+
+    /**
+     * Index of the k-th shape in the filtered subset.
+     */
+    public int filtered(int k) {
+        return filtered[k];
+    }
+}
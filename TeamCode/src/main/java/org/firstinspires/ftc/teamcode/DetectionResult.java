@@ -0,0 +1,118 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+
+/**
+ * Immutable result of one processed frame, published by a pipeline through a single
+ * AtomicReference so the OpMode thread always reads a complete, consistent frame result
+ * without locking the frame worker.
+ *
+ * Timestamps are System.nanoTime() values: captureNs when the camera delivered the frame,
+ * completeNs when the pipeline finished it. The sequence number increases by one per
+ * processed frame, so an OpMode can tell a fresh result from one it has already seen.
+ */
+public final class DetectionResult {
+    /** Result before the first frame has been processed. */
+    public static final DetectionResult NONE = new DetectionResult(-1, 0, 0, 0, null, null, null, null, null);
+
+    public final long sequence;
+    public final long captureNs;
+    public final long completeNs;
+    /** Prop position 1 LEFT, 2 CENTER, 3 RIGHT, or 1 when gold was found; 0 when nothing was. */
+    public final int position;
+
+    private final double leftX;
+    private final double leftY;
+    private final double centerX;
+    private final double centerY;
+    private final double[] leftColor;
+    private final double[] centerColor;
+    private final int[] box;
+
+    private DetectionResult(long sequence, long captureNs, long completeNs, int position,
+                            Point left, Point center, Scalar leftColor, Scalar centerColor, Rect box) {
+        this.sequence = sequence;
+        this.captureNs = captureNs;
+        this.completeNs = completeNs;
+        this.position = position;
+        this.leftX   = (left != null)   ? left.x   : 0;
+        this.leftY   = (left != null)   ? left.y   : 0;
+        this.centerX = (center != null) ? center.x : 0;
+        this.centerY = (center != null) ? center.y : 0;
+        this.leftColor   = (leftColor != null)   ? leftColor.val.clone()   : null;
+        this.centerColor = (centerColor != null) ? centerColor.val.clone() : null;
+        this.box = (box != null) ? new int[] { box.x, box.y, box.width, box.height } : null;
+    }
+
+    /**
+     * Result of a prop pipeline frame: the position and the left/center spike mark circles.
+     */
+    public static DetectionResult prop(long sequence, long captureNs, long completeNs, int position,
+                                       Point left, Point center, Scalar leftColor, Scalar centerColor) {
+        return new DetectionResult(sequence, captureNs, completeNs, position, left, center, leftColor, centerColor, null);
+    }
+
+    /**
+     * Result of a gold pipeline frame: the bounding box of the largest gold shape, or null.
+     */
+    public static DetectionResult gold(long sequence, long captureNs, long completeNs, Rect box) {
+        return new DetectionResult(sequence, captureNs, completeNs, (box != null) ? 1 : 0, null, null, null, null, box);
+    }
+
+    public boolean isFound() {
+        return position > 0;
+    }
+
+    /**
+     * Capture-to-result latency of the pipeline for this frame.
+     */
+    public double getLatencyMs() {
+        return (completeNs - captureNs) / 1e6;
+    }
+
+    /**
+     * How old the result is at nowNs, counted from the frame capture.
+     */
+    public double getAgeMs(long nowNs) {
+        return (nowNs - captureNs) / 1e6;
+    }
+
+    public double getAgeMs() {
+        return getAgeMs(System.nanoTime());
+    }
+
+    /**
+     * True if the result is older than maxAgeMs, or there is no result yet.
+     */
+    public boolean isStale(double maxAgeMs) {
+        return (sequence < 0) || (getAgeMs() > maxAgeMs);
+    }
+
+    public Point getLeftPoint() {
+        return new Point(leftX, leftY);
+    }
+
+    public Point getCenterPoint() {
+        return new Point(centerX, centerY);
+    }
+
+    /**
+     * Color the left spike mark circle is drawn in, or null before the first two-shape frame.
+     */
+    public Scalar getLeftColor() {
+        return (leftColor != null) ? new Scalar(leftColor) : null;
+    }
+
+    public Scalar getCenterColor() {
+        return (centerColor != null) ? new Scalar(centerColor) : null;
+    }
+
+    /**
+     * Bounding box of the detected gold, or null.
+     */
+    public Rect getBox() {
+        return (box != null) ? new Rect(box[0], box[1], box[2], box[3]) : null;
+    }
+}
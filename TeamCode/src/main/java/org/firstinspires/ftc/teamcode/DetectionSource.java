@@ -0,0 +1,13 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * A pipeline that publishes its per-frame result as a DetectionResult.
+ */
+public interface DetectionSource {
+
+    /**
+     * Result of the most recently processed frame; DetectionResult.NONE before the first.
+     * Safe to call from any thread.
+     */
+    DetectionResult getResult();
+}
@@ -26,26 +26,44 @@
 
 package org.firstinspires.ftc.teamcode;
 
-import android.util.Log;
-
 import org.opencv.core.Core;
+import org.opencv.core.CvType;
 import org.opencv.core.Mat;
 import org.opencv.core.MatOfPoint;
 import org.opencv.core.Rect;
 import org.opencv.core.Scalar;
 import org.opencv.core.Size;
 import org.opencv.imgproc.Imgproc;
-import org.openftc.easyopencv.OpenCvPipeline;
+import org.openftc.easyopencv.TimestampedOpenCvPipeline;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Example class that processes camera images with OpenCV module calls.
  * This code searches for gold/yellow colors and displays a rectangle around
  * the largest contour of the gold/yellow filtering.
+ * With ShapeBackend.BLOBS the largest blob is found with one connected-components
+ * pass instead of tracing contours, with ShapeBackend.RUNS by labeling the mask's runs.
+ *
+ * Mode.FUSED is the lean version of the same detection: it reads the camera frame in
+ * place instead of copying it twice, thresholds the HSV image first and then cleans the
+ * single-channel mask with a 3x3 majority vote (box blur and threshold) instead of blurring
+ * all three HSV channels, picks the largest shape in one pass over the outer contours (or the
+ * blobs, with ShapeBackend.BLOBS or RUNS) without drawing them, and draws the box onto the frame it
+ * returns. FUSED ignores the pyramid scale.
+ * In either mode requestSnapshot() builds the save-to-file image from the next frame.
+ * Rendering comes after the analysis: with live view off (setLiveView) or the viewport paused,
+ * the input frame is returned untouched unless a snapshot is pending.
  */
-public class GoldPipeline extends OpenCvPipeline {
+public class GoldPipeline extends TimestampedOpenCvPipeline implements DetectionSource {
+
+    public enum Mode {
+        CLASSIC,  // copy, HSV, blur, inRange, contours, as the original example
+        FUSED     // in place, HSV, inRange, majority vote, largest shape
+    }
 
     private static final String TAG = "Gold Detector"; // Logging ID tag
 
@@ -54,67 +72,204 @@ public class GoldPipeline extends OpenCvPipeline {
     private Mat hsvMat     = new Mat(); // Image Mat returned by RGB->HSV method
     private Mat blurredMat = new Mat(); // Image Mat returned by blurring method
     private Mat goldMat    = new Mat(); // Image Mat returned by gold color filter
+    private Mat rawGoldMat = new Mat(); // gold color filter before the majority vote, in FUSED mode
     public  Mat fileMat    = new Mat(); // Image Mat to hold image to write to a file
 
     private Scalar rgbRed  = new Scalar(255,0,0);  // RGB color set to red
     private Scalar rgbBlue = new Scalar(0,0,255);  // RGB color set to blue
     private Size blurSize  = new Size(3,3);        // kernel size of dimensions 3x3
-    public  List<MatOfPoint> contourList = new ArrayList<>(); // List of contours
+    // Given bounds for Gold Mineral detection:
+    private Scalar lowerHSVbound = new Scalar(25, 100, 100);
+    private Scalar upperHSVbound = new Scalar(45, 255, 255);
+    private static final double MIN_GOLD_AREA = 100;  // smallest contour taken as gold
+    private Scalar noGold  = new Scalar(0);        // mask value outside the gold
+    private final List<MatOfPoint> contourList = new ArrayList<>(); // List of contours, reused every frame
     private Mat hierarchy  = new Mat(); // placeholder for contour hierarchy
 
-    private boolean found = false;
+    private volatile boolean found = false;  // latched once gold has been seen
+    private Rect foundRect = null;          // largest gold shape of the current frame
+    private final AtomicReference<DetectionResult> result = new AtomicReference<>(DetectionResult.NONE);
+    private volatile Mode mode = Mode.CLASSIC;
+    private volatile ShapeBackend shapeBackend = ShapeBackend.CONTOURS;
+    private SnapshotWriter snapshotWriter;  // pending snapshot request, guarded by this
+    private File snapshotFile;
+    private volatile int pyramidScale = 1;
+    private CoarseToFine coarseToFine;                     // null unless pyramidScale > 1
+    private Mat coarseHsvMat     = new Mat();              // scratch for the shrunk image
+    private Mat coarseBlurredMat = new Mat();
+    private final BlobExtractor blobExtractor = new BlobExtractor();
+    private final RunLengthMask runMask = new RunLengthMask();
+    private final ContourFeatures blobFeatures = new ContourFeatures();
+
+    private volatile boolean liveView = true;
+    private volatile boolean viewportPaused = false;
 
-    boolean viewportPaused;
+    private final StageLatencies stageLatencies = new StageLatencies();
+    private final PipelineEventLog eventLog = new PipelineEventLog(TAG);
+    private long frameIndex = 0;
 
     public boolean isFound() {
         return found;
     }
 
+    /**
+     * Result of the most recently processed frame; DetectionResult.NONE before the first.
+     * Safe to call from any thread.
+     */
+    @Override
+    public DetectionResult getResult() {
+        return result.get();
+    }
+
+    /**
+     * Contours of the last frame. The frame worker releases and replaces them every frame,
+     * so only read them once streaming has stopped.
+     */
+    public List<MatOfPoint> getContourList() {
+        return contourList;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Switch between the original and the fused detection, effective from the next frame.
+     */
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Have the frame worker submit the next frame's display image, with the gold box drawn
+     * in, to writer as file. Safe to call while the camera is streaming.
+     */
+    public synchronized void requestSnapshot(SnapshotWriter writer, File file) {
+        this.snapshotWriter = writer;
+        this.snapshotFile = file;
+    }
+
+    public boolean isLiveView() {
+        return liveView;
+    }
+
+    /**
+     * Whether someone watches the viewport. Off, processFrame() returns the input untouched
+     * and skips the display copy and drawing, except for a frame that has to build a
+     * requested snapshot. Effective from the next frame.
+     */
+    public void setLiveView(boolean liveView) {
+        this.liveView = liveView;
+    }
+
+    /**
+     * Tapping the viewport pauses the overlay, and tapping again resumes it.
+     */
+    @Override
+    public void onViewportTapped() {
+        viewportPaused = !viewportPaused;
+    }
+
+    private synchronized boolean isRenderNeeded() {
+        return (liveView && !viewportPaused) || (snapshotWriter != null);
+    }
+
+    /**
+     * True from requestSnapshot() until a frame has submitted the snapshot.
+     */
+    public synchronized boolean isSnapshotPending() {
+        return snapshotWriter != null;
+    }
+
+    public int getPyramidScale() {
+        return pyramidScale;
+    }
+
+    /**
+     * Coarse-to-fine masking: 1 masks every pixel; 2 or 4 masks a shrunk image first and
+     * then only the regions around its blobs at full resolution. Effective from the next frame.
+     */
+    public void setPyramidScale(int pyramidScale) {
+        if ((pyramidScale != 1) && (pyramidScale != 2) && (pyramidScale != 4)) {
+            throw new IllegalArgumentException("pyramidScale must be 1, 2 or 4, was " + pyramidScale);
+        }
+        this.pyramidScale = pyramidScale;
+    }
+
+    public ShapeBackend getShapeBackend() {
+        return shapeBackend;
+    }
+
+    public void setShapeBackend(ShapeBackend shapeBackend) {
+        this.shapeBackend = shapeBackend;
+    }
+
+    /**
+     * Per-frame event log; start() it from the OpMode to drain it to logcat.
+     */
+    public PipelineEventLog getEventLog() {
+        return eventLog;
+    }
+
+    /**
+     * Latency histograms for the mask, contour and classify stages, and for the whole frame.
+     */
+    public StageLatencies getStageLatencies() {
+        return stageLatencies;
+    }
+
     /**
      * Method declared in OpenCVAgent
      * Put all code to process camera frames into this method.
      */
     @Override
-    public Mat processFrame(Mat input) {
+    public Mat processFrame(Mat input, long captureTimeNanos) {
         
-        Log.d(TAG, "processing frame");
+        long startNs = System.nanoTime();
+        stageLatencies.start();
+        foundRect = null;
+        boolean render = isRenderNeeded();
+        if (mode == Mode.FUSED) {
+            processFused(input);
+            if (render && (foundRect != null)) {
+                Imgproc.rectangle(input, foundRect.tl(), foundRect.br(), rgbBlue, 2);
+            }
+            stageLatencies.lap(PipelineStage.RENDER);
+            publish(startNs, captureTimeNanos);
+            writeRequestedSnapshot(input);
+            return input;
+        }
+        int scale = pyramidScale;
+        if ((coarseToFine != null) && (coarseToFine.getScale() != scale)) {
+            coarseToFine.release();
+            coarseToFine = null;
+        }
+        if ((coarseToFine == null) && (scale > 1)) {
+            coarseToFine = new CoarseToFine(scale);
+        }
 
-        // copy rgba Mat image for output display
-        // we will continue processing on rgba Mat
-        input.copyTo(displayMat);
+        // copy rgba Mat image to be processed; the display copy is only made when rendering
         input.copyTo(rgbMat);
 
-        // Convert the rgb image from rgb colorspace to hsv colorspace
-        //  args: (src, dst, code)
-        //         code: COLOR_RGB2HSV_FULL
-        Imgproc.cvtColor(rgbMat, hsvMat, Imgproc.COLOR_RGB2HSV_FULL);
-        
-        // Fuzz out spurious pixels with blurring operation
-        //   args: (src, dst, ksize, -)
-        Imgproc.GaussianBlur(hsvMat, blurredMat, blurSize, 0);
-        
-        // Generate a masked Mat, given lower and upper bounds for color filtering
-        // Given bounds for Gold Mineral detection:
-        Scalar lowerHSVbound = new Scalar(25, 100, 100);
-        Scalar upperHSVbound = new Scalar(45, 255, 255);
-        // Use OpenCV method to generate mask; sets output to 255 if within bounds, else 0.
-        //  args: (src, lowerb, upperb, dst)
-        //         lowerb, upperb are Scalar in given colorspace
-        Core.inRange(blurredMat, lowerHSVbound, upperHSVbound, goldMat);
+        if (coarseToFine != null) {
+            maskGoldCoarseToFine(coarseToFine);
+        } else {
+            maskGold(rgbMat, hsvMat, blurredMat, goldMat);
+        }
+        stageLatencies.lap(PipelineStage.MASK);
+
+        if (shapeBackend != ShapeBackend.CONTOURS) {
+            processBlobs();
+            return finishClassic(input, render, false, startNs, captureTimeNanos);
+        }
                 
         // Use OpenCV to find all contours in gold-masked image
         // args: (src, <MatOfPoint> contours, hierarchy, mode, method)
         //        mode:   RETR_LIST - retrieve all contours without a hierarchy
         //        method: CHAIN_APPROX_SIMPLE - compress segments, minimizes number of contour points
-        contourList = new ArrayList<>();
+        releaseContours();
         Imgproc.findContours(goldMat, contourList, hierarchy, Imgproc.RETR_LIST, Imgproc.CHAIN_APPROX_SIMPLE);
-        
-        // Draw the contours onto the display image
-        // args: (src, <MatOfPoint> contours, contourIdx, color, thickness)
-        //       contourIdx: -1 draw all contours
-        //       color:      Scalar RGB color
-        //       thickness:  How many pixels thick to draw the contours
-        Imgproc.drawContours(displayMat,contourList,-1,rgbRed,2);
+        stageLatencies.lap(PipelineStage.CONTOURS);
 
         // Loop through all contours to find the contour with the largest area
         double biggestArea = 0;
@@ -123,23 +278,211 @@ public class GoldPipeline extends OpenCvPipeline {
             double area = Imgproc.contourArea(contour);
             if (area > biggestArea) {
                 biggestContour = contour;
+                biggestArea = area;
             }
         }
 
         // If there was a largest contour found then
-        // draw bounding rectangle onto display image around the largest contour
+        // remember its bounding rectangle for the display image
         if (biggestContour != null) {
-            if (Imgproc.contourArea(biggestContour) > 100) {
-                Rect rect = Imgproc.boundingRect(biggestContour);
-                Imgproc.rectangle(displayMat, rect.tl(), rect.br(), rgbBlue, 2);
-                // make a copy to save to file
-                Imgproc.cvtColor(displayMat, fileMat, Imgproc.COLOR_BGR2RGB);
+            if (Imgproc.contourArea(biggestContour) > MIN_GOLD_AREA) {
+                foundRect = Imgproc.boundingRect(biggestContour);
                 found = true;
             }
 
         }
+        stageLatencies.lap(PipelineStage.CLASSIFY);
+        return finishClassic(input, render, true, startNs, captureTimeNanos);
+    }
+
+    /**
+     * CLASSIC mode display image: a copy of the input with the contours (if traced) and the
+     * gold box drawn in, or the input itself when nothing needs rendering.
+     */
+    private Mat finishClassic(Mat input, boolean render, boolean drawContours, long startNs, long captureTimeNanos) {
+        Mat output = input;
+        if (render) {
+            input.copyTo(displayMat);
+            if (drawContours) {
+                // Draw the contours onto the display image
+                // args: (src, <MatOfPoint> contours, contourIdx, color, thickness)
+                //       contourIdx: -1 draw all contours
+                //       color:      Scalar RGB color
+                //       thickness:  How many pixels thick to draw the contours
+                Imgproc.drawContours(displayMat,contourList,-1,rgbRed,2);
+            }
+            if (foundRect != null) {
+                Imgproc.rectangle(displayMat, foundRect.tl(), foundRect.br(), rgbBlue, 2);
+            }
+            output = displayMat;
+        }
+        stageLatencies.lap(PipelineStage.RENDER);
+        publish(startNs, captureTimeNanos);
+        writeRequestedSnapshot(output);
+        return output;
+    }
+
+    /**
+     * Gold color mask of rgb into gold; hsv and blurred are scratch of the same size.
+     * All four may be views of a region of larger Mats.
+     */
+    private void maskGold(Mat rgb, Mat hsv, Mat blurred, Mat gold) {
+        // Convert the rgb image from rgb colorspace to hsv colorspace
+        //  args: (src, dst, code)
+        //         code: COLOR_RGB2HSV_FULL
+        Imgproc.cvtColor(rgb, hsv, Imgproc.COLOR_RGB2HSV_FULL);
+
+        // Fuzz out spurious pixels with blurring operation
+        //   args: (src, dst, ksize, -)
+        Imgproc.GaussianBlur(hsv, blurred, blurSize, 0);
+
+        // Generate a masked Mat, given lower and upper bounds for color filtering
+        // Use OpenCV method to generate mask; sets output to 255 if within bounds, else 0.
+        //  args: (src, lowerb, upperb, dst)
+        //         lowerb, upperb are Scalar in given colorspace
+        Core.inRange(blurred, lowerHSVbound, upperHSVbound, gold);
+    }
+
+    /**
+     * Gold mask of a shrunk rgbMat first, then at full resolution only around its blobs.
+     */
+    private void maskGoldCoarseToFine(CoarseToFine pyramid) {
+        Mat coarse = pyramid.downscale(rgbMat);
+        maskGold(coarse, coarseHsvMat, coarseBlurredMat, pyramid.getCoarseMask());
+        int candidates = pyramid.findCandidates(MIN_GOLD_AREA, rgbMat.cols(), rgbMat.rows());
+        hsvMat.create(rgbMat.rows(), rgbMat.cols(), CvType.CV_8UC3);
+        blurredMat.create(rgbMat.rows(), rgbMat.cols(), CvType.CV_8UC3);
+        goldMat.create(rgbMat.rows(), rgbMat.cols(), CvType.CV_8U);
+        goldMat.setTo(noGold);
+        for (int i = 0; i < candidates; i++) {
+            maskGold(pyramid.candidateView(i, 0, rgbMat),
+                    pyramid.candidateView(i, 1, hsvMat),
+                    pyramid.candidateView(i, 2, blurredMat),
+                    pyramid.candidateView(i, 3, goldMat));
+        }
+    }
+
+    /**
+     * findContours creates one MatOfPoint per contour; release the previous frame's before
+     * tracing new ones, so they do not pile up.
+     */
+    private void releaseContours() {
+        for (MatOfPoint contour : contourList) {
+            contour.release();
+        }
+        contourList.clear();
+    }
+    /**
+     * FUSED mode: gold mask of the frame itself, cleaned up by a 3x3 majority vote, and the
+     * box around the largest shape.
+     */
+    private void processFused(Mat input) {
+        // HSV conversion reads the RGBA frame directly, no copy
+        Imgproc.cvtColor(input, hsvMat, Imgproc.COLOR_RGB2HSV_FULL);
+        Core.inRange(hsvMat, lowerHSVbound, upperHSVbound, rawGoldMat);
+        // 3x3 majority vote on the single-channel mask: a pixel stays gold if at least
+        // 5 of its 9 neighbors are (box average of 5 x 255 / 9 = 142 > 127)
+        Imgproc.blur(rawGoldMat, goldMat, blurSize);
+        Imgproc.threshold(goldMat, goldMat, 127, 255, Imgproc.THRESH_BINARY);
+        stageLatencies.lap(PipelineStage.MASK);
+
+        int biggest = -1;
+        double biggestArea = MIN_GOLD_AREA;
+        Rect rect = null;
+        if (shapeBackend != ShapeBackend.CONTOURS) {
+            // no blob can beat MIN_GOLD_AREA unless the whole mask does
+            int blobs = (Core.countNonZero(goldMat) > MIN_GOLD_AREA) ? extractBlobs() : 0;
+            stageLatencies.lap(PipelineStage.CONTOURS);
+            for (int i = 0; i < blobs; i++) {
+                if (blobFeatures.area(i) > biggestArea) {
+                    biggest = i;
+                    biggestArea = blobFeatures.area(i);
+                }
+            }
+            if (biggest >= 0) {
+                rect = new Rect(blobFeatures.rectX(biggest), blobFeatures.rectY(biggest),
+                                blobFeatures.rectWidth(biggest), blobFeatures.rectHeight(biggest));
+            }
+        } else {
+            // outer contours only, one contourArea each
+            releaseContours();
+            Imgproc.findContours(goldMat, contourList, hierarchy, Imgproc.RETR_EXTERNAL, Imgproc.CHAIN_APPROX_SIMPLE);
+            stageLatencies.lap(PipelineStage.CONTOURS);
+            for (int i = 0; i < contourList.size(); i++) {
+                double area = Imgproc.contourArea(contourList.get(i));
+                if (area > biggestArea) {
+                    biggest = i;
+                    biggestArea = area;
+                }
+            }
+            if (biggest >= 0) {
+                rect = Imgproc.boundingRect(contourList.get(biggest));
+            }
+        }
+        if (rect != null) {
+            foundRect = rect;
+            found = true;
+        }
+        stageLatencies.lap(PipelineStage.CLASSIFY);
+    }
+
+    private void writeRequestedSnapshot(Mat display) {
+        SnapshotWriter writer;
+        File file;
+        synchronized (this) {
+            writer = snapshotWriter;
+            file = snapshotFile;
+        }
+        if (writer == null) {
+            return;
+        }
+        Imgproc.cvtColor(display, fileMat, Imgproc.COLOR_BGR2RGB);
+        writer.submit(fileMat, file);
+        synchronized (this) {
+            if (snapshotFile == file) {
+                snapshotWriter = null;
+                snapshotFile = null;
+            }
+        }
+    }
 
-        return displayMat;
+    private void publish(long startNs, long captureTimeNanos) {
+        stageLatencies.finish();
+        long endNs = System.nanoTime();
+        result.set(DetectionResult.gold(frameIndex, captureTimeNanos, endNs, foundRect));
+        eventLog.record(frameIndex++, startNs, endNs, (foundRect != null) ? 1 : 0, stageLatencies);
+    }
+
+    /**
+     * Blobs of the gold mask into blobFeatures, with the shape backend's labeler.
+     */
+    private int extractBlobs() {
+        if (shapeBackend == ShapeBackend.RUNS) {
+            return runMask.extract(goldMat, blobFeatures, 0, 0);
+        }
+        return blobExtractor.extract(goldMat, blobFeatures, 0, 0);
+    }
+
+    /**
+     * Blob version of the contour search above: label the gold mask once and
+     * take the largest blob.
+     */
+    private void processBlobs() {
+        int blobs = extractBlobs();
+        stageLatencies.lap(PipelineStage.CONTOURS);
+
+        int biggest = -1;
+        for (int i = 0; i < blobs; i++) {
+            if ((biggest < 0) || (blobFeatures.area(i) > blobFeatures.area(biggest))) {
+                biggest = i;
+            }
+        }
+        if ((biggest >= 0) && (blobFeatures.area(biggest) > MIN_GOLD_AREA)) {
+            foundRect = new Rect(blobFeatures.rectX(biggest), blobFeatures.rectY(biggest),
+                                 blobFeatures.rectWidth(biggest), blobFeatures.rectHeight(biggest));
+            found = true;
+        }
+        stageLatencies.lap(PipelineStage.CLASSIFY);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.Scalar;
+
+/**
+ * Immutable inclusive HSV color band, in OpenCV 8-bit HSV units (H 0..180, S and V 0..255).
+ */
+public final class HsvBand {
+    public final int hLow;
+    public final int sLow;
+    public final int vLow;
+    public final int hHigh;
+    public final int sHigh;
+    public final int vHigh;
+
+    public HsvBand(int hLow, int sLow, int vLow, int hHigh, int sHigh, int vHigh) {
+        this.hLow  = hLow;
+        this.sLow  = sLow;
+        this.vLow  = vLow;
+        this.hHigh = hHigh;
+        this.sHigh = sHigh;
+        this.vHigh = vHigh;
+    }
+
+    /**
+     * Inclusive lower boundary for Core.inRange.
+     */
+    public Scalar lower() {
+        return new Scalar(hLow, sLow, vLow);
+    }
+
+    /**
+     * Inclusive upper boundary for Core.inRange.
+     */
+    public Scalar upper() {
+        return new Scalar(hHigh, sHigh, vHigh);
+    }
+
+    public boolean contains(int h, int s, int v) {
+        return (h >= hLow) && (h <= hHigh) &&
+               (s >= sLow) && (s <= sHigh) &&
+               (v >= vLow) && (v <= vHigh);
+    }
+}
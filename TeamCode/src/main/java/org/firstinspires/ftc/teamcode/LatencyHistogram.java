@@ -0,0 +1,90 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * Fixed-bucket latency histogram that records without allocating.
+ *
+ * Bucket upper bounds grow by 25% from 10 us, so 64 buckets cover 10 us to about 12 s with
+ * a worst-case percentile error of 25%. The exact maximum is tracked separately.
+ * Samples are recorded on one thread (the frame worker) and may be read from another
+ * (the OpMode); readers see a close, not necessarily atomic, snapshot.
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 64;
+    private static final long[] UPPER_BOUNDS_NS = new long[BUCKETS];
+    static {
+        double bound = 10_000.0;
+        for (int i = 0; i < BUCKETS; i++) {
+            UPPER_BOUNDS_NS[i] = (long) bound;
+            bound *= 1.25;
+        }
+    }
+
+    private final int[] counts = new int[BUCKETS + 1];  // last bucket catches everything larger
+    private volatile int total = 0;
+    private volatile long maxNs = 0;
+    private volatile long lastNs = 0;
+
+    public void record(long nanos) {
+        int lo = 0;
+        int hi = BUCKETS;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (nanos <= UPPER_BOUNDS_NS[mid]) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        counts[lo]++;
+        total++;
+        lastNs = nanos;
+        if (nanos > maxNs) {
+            maxNs = nanos;
+        }
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
+        }
+        total = 0;
+        maxNs = 0;
+        lastNs = 0;
+    }
+
+    public int count() {
+        return total;
+    }
+
+    public double maxMs() {
+        return maxNs / 1e6;
+    }
+
+    public long lastNs() {
+        return lastNs;
+    }
+
+    public double lastMs() {
+        return lastNs / 1e6;
+    }
+
+    /**
+     * Upper bound of the bucket holding the given quantile (0..1), capped at the max, in ms.
+     */
+    public double percentileMs(double quantile) {
+        int n = total;
+        if (n == 0) {
+            return 0.0;
+        }
+        long rank = (long) Math.ceil(quantile * n);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                long bound = (i < BUCKETS) ? UPPER_BOUNDS_NS[i] : maxNs;
+                return Math.min(bound, maxNs) / 1e6;
+            }
+        }
+        return maxMs();
+    }
+}
@@ -0,0 +1,98 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Owns every Mat a pipeline needs so that processFrame can run without allocating.
+ * Buffers are created once (normally from OpenCvPipeline.init) and reused every frame.
+ *
+ * Call beginFrame() at the top of processFrame; allocationsThisFrame() should then
+ * stay at 0 in steady state. Anything else means a stage is allocating (leaking) Mats.
+ *
+ * Some OpenCV calls create their outputs themselves (findContours makes a MatOfPoint per
+ * contour). Their owner releases them before the next frame and reports how many are live
+ * with setFrameMats(), so liveMatCount() covers them too.
+ */
+public class MatArena {
+    private final List<Mat> mats = new ArrayList<>();
+    private int allocationsThisFrame = 0;
+    private int frameMats = 0;
+
+    /**
+     * Allocate an empty Mat header; OpenCV sizes it on first use and reuses it afterwards.
+     */
+    public Mat alloc() {
+        return track(new Mat());
+    }
+
+    /**
+     * Allocate a Mat of the given size and type, initialized to zeros.
+     */
+    public Mat alloc(int rows, int cols, int type) {
+        return track(Mat.zeros(rows, cols, type));
+    }
+
+    /**
+     * Allocate a submat view into a Mat owned by this arena.
+     */
+    public Mat submat(Mat parent, Rect roi) {
+        return track(parent.submat(roi));
+    }
+
+    /**
+     * Start counting allocations for a new frame.
+     */
+    public void beginFrame() {
+        allocationsThisFrame = 0;
+    }
+
+    /**
+     * Number of Mats allocated through this arena since the last beginFrame().
+     */
+    public int allocationsThisFrame() {
+        return allocationsThisFrame;
+    }
+
+    /**
+     * Number of Mats currently held (not yet released) by this arena, plus the frame Mats
+     * last reported with setFrameMats().
+     */
+    public int liveMatCount() {
+        return mats.size() + frameMats;
+    }
+
+    /**
+     * Report count Mats created outside the arena that are live until the owner releases
+     * them, replacing the last count; 0 once they are released.
+     */
+    public void setFrameMats(int count) {
+        frameMats = count;
+    }
+
+    /**
+     * Number of Mats last reported with setFrameMats().
+     */
+    public int frameMatCount() {
+        return frameMats;
+    }
+
+    /**
+     * Release all native memory held by this arena.
+     */
+    public void release() {
+        for (Mat mat : mats) {
+            mat.release();
+        }
+        mats.clear();
+    }
+
+    private Mat track(Mat mat) {
+        mats.add(mat);
+        allocationsThisFrame++;
+        return mat;
+    }
+}
@@ -0,0 +1,283 @@
+package org.firstinspires.ftc.teamcode;
+
+import android.util.Log;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Continuous match recorder: copies every frame, raw or subsampled, into a preallocated
+ * memory-mapped ring file together with its capture timestamp, camera exposure and
+ * pipeline result. No encoding happens on the robot; the kernel pages the mapping out to
+ * flash in the background. MatchRingTool (src/replay) extracts the ring into images or
+ * replays it.
+ *
+ * record() runs on the frame worker thread. Its cost is measured per frame; when a frame
+ * takes longer than the budget, the following frames are skipped so that the recorder's
+ * average cost per processed frame stays within the budget.
+ *
+ * File layout (little endian): a HEADER_SIZE byte file header, then slotCount slots of
+ * SLOT_HEADER_SIZE header bytes plus room for one maxCols x maxRows RGB frame after
+ * subsampling. A slot's sequence is -1 while it is being written.
+ *
+ * At the defaults a ring takes about 35 MB of flash. Recording is opt-in in the OpModes,
+ * and deleteOldRings() keeps only the newest few match_*.ring files, so practice runs do
+ * not fill the Control Hub's storage.
+ */
+public class MatchRecorder {
+    public static final int MAGIC   = 0x474E5252;  // "RRNG"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE      = 64;
+    public static final int SLOT_HEADER_SIZE = 64;
+
+    // file header offsets
+    static final int H_MAGIC     = 0;
+    static final int H_VERSION   = 4;
+    static final int H_SLOTS     = 8;
+    static final int H_SLOT_SIZE = 12;
+    static final int H_MAX_COLS  = 16;
+    static final int H_MAX_ROWS  = 20;
+    static final int H_SUBSAMPLE = 24;
+
+    // slot header offsets
+    static final int S_SEQUENCE = 0;
+    static final int S_CAPTURE  = 8;
+    static final int S_RECORD   = 16;
+    static final int S_EXPOSURE = 24;
+    static final int S_RESULT   = 32;
+    static final int S_COLS     = 36;
+    static final int S_ROWS     = 40;
+    static final int S_CHANNELS = 44;
+    static final int S_LENGTH   = 48;
+    static final int S_FRAME_COLS = 52;  // size of the frame before subsampling
+    static final int S_FRAME_ROWS = 56;
+
+    public static final int DEFAULT_SLOTS = 600;           // 20 s at 30 fps
+    public static final int DEFAULT_SUBSAMPLE = 2;
+    public static final double DEFAULT_BUDGET_MS = 1.0;
+    public static final int DEFAULT_KEPT_RINGS = 3;
+    public static final String RING_PREFIX = "match_";
+    public static final String RING_SUFFIX = ".ring";
+
+    private final String tag;
+    private final int slotCount;
+    private final int slotSize;
+    private final int maxBytes;
+    private final int subsample;
+    private final long budgetNs;
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final MappedByteBuffer ring;
+
+    private final Mat rgbMat   = new Mat();
+    private final Mat smallMat = new Mat();
+    private final Size smallSize = new Size();
+    private byte[] bytes = new byte[0];
+    private final LatencyHistogram recordLatency = new LatencyHistogram();
+
+    private volatile long exposure = 0;
+    private long sequence = 0;
+    private int skip = 0;
+    private volatile long recorded = 0;
+    private volatile long skipped = 0;
+    private volatile boolean closed = false;
+
+    public MatchRecorder(File ringFile) throws IOException {
+        this(ringFile, DEFAULT_SLOTS, PropProfile.REFERENCE_COLS, PropProfile.REFERENCE_ROWS,
+                DEFAULT_SUBSAMPLE, DEFAULT_BUDGET_MS);
+    }
+
+    /**
+     * Create (or overwrite) a ring file with room for slotCount frames of up to
+     * maxCols x maxRows, stored at 1/subsample of their size in each direction.
+     */
+    public MatchRecorder(File ringFile, int slotCount, int maxCols, int maxRows, int subsample,
+                         double budgetMs) throws IOException {
+        if ((slotCount < 1) || (subsample < 1)) {
+            throw new IllegalArgumentException("slotCount and subsample must be at least 1");
+        }
+        this.tag = "MatchRecorder";
+        this.slotCount = slotCount;
+        this.subsample = subsample;
+        this.maxBytes = ((maxCols + subsample - 1) / subsample) * ((maxRows + subsample - 1) / subsample) * 3;
+        this.slotSize = SLOT_HEADER_SIZE + maxBytes;
+        this.budgetNs = (long) (budgetMs * 1e6);
+
+        long size = HEADER_SIZE + (long) slotCount * slotSize;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("ring file of " + size + " bytes is too large to map");
+        }
+        file = new RandomAccessFile(ringFile, "rw");
+        file.setLength(size);
+        channel = file.getChannel();
+        ring = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        ring.order(ByteOrder.LITTLE_ENDIAN);
+        ring.putInt(H_MAGIC, MAGIC);
+        ring.putInt(H_VERSION, VERSION);
+        ring.putInt(H_SLOTS, slotCount);
+        ring.putInt(H_SLOT_SIZE, slotSize);
+        ring.putInt(H_MAX_COLS, maxCols);
+        ring.putInt(H_MAX_ROWS, maxRows);
+        ring.putInt(H_SUBSAMPLE, subsample);
+        for (int slot = 0; slot < slotCount; slot++) {
+            ring.putLong(HEADER_SIZE + slot * slotSize + S_SEQUENCE, -1);
+        }
+    }
+
+    /**
+     * Camera exposure to store with the following frames, in whatever unit the OpMode
+     * reads it (e.g. ExposureControl.getExposure(TimeUnit.MICROSECONDS)).
+     */
+    public void setExposure(long exposure) {
+        this.exposure = exposure;
+    }
+
+    /**
+     * Copy one RGBA or RGB frame into the next ring slot. Returns false if the frame was
+     * skipped to stay within the budget, did not fit a slot, or the recorder is closed.
+     * Must only be called from one thread, the frame worker.
+     */
+    public boolean record(Mat frame, long captureNs, int result) {
+        if (closed) {
+            return false;
+        }
+        if (skip > 0) {
+            skip--;
+            skipped++;
+            return false;
+        }
+        long start = System.nanoTime();
+        // subsample first, so the alpha drop only touches the pixels that are kept
+        Mat stored = frame;
+        if (subsample > 1) {
+            smallSize.width  = (frame.cols() + subsample - 1) / subsample;
+            smallSize.height = (frame.rows() + subsample - 1) / subsample;
+            Imgproc.resize(frame, smallMat, smallSize, 0, 0, Imgproc.INTER_NEAREST);
+            stored = smallMat;
+        }
+        if (stored.channels() == 4) {
+            Imgproc.cvtColor(stored, rgbMat, Imgproc.COLOR_RGBA2RGB);
+            stored = rgbMat;
+        }
+        int length = stored.rows() * stored.cols() * stored.channels();
+        if (length > maxBytes) {
+            skipped++;
+            return false;
+        }
+        if (bytes.length != length) {
+            bytes = new byte[length];
+        }
+        stored.get(0, 0, bytes);
+
+        int base = HEADER_SIZE + (int) (sequence % slotCount) * slotSize;
+        ring.putLong(base + S_SEQUENCE, -1);
+        ring.putLong(base + S_CAPTURE, captureNs);
+        ring.putLong(base + S_EXPOSURE, exposure);
+        ring.putInt(base + S_RESULT, result);
+        ring.putInt(base + S_COLS, stored.cols());
+        ring.putInt(base + S_ROWS, stored.rows());
+        ring.putInt(base + S_CHANNELS, stored.channels());
+        ring.putInt(base + S_LENGTH, length);
+        ring.putInt(base + S_FRAME_COLS, frame.cols());
+        ring.putInt(base + S_FRAME_ROWS, frame.rows());
+        ring.position(base + SLOT_HEADER_SIZE);
+        ring.put(bytes, 0, length);
+        long end = System.nanoTime();
+        ring.putLong(base + S_RECORD, end);
+        ring.putLong(base + S_SEQUENCE, sequence);
+        sequence++;
+        recorded++;
+
+        long elapsed = end - start;
+        recordLatency.record(elapsed);
+        if ((budgetNs > 0) && (elapsed > budgetNs)) {
+            skip = (int) Math.min(30, (elapsed - 1) / budgetNs);
+        }
+        return true;
+    }
+
+    /**
+     * Time record() took for the frames it stored.
+     */
+    public LatencyHistogram getRecordLatency() {
+        return recordLatency;
+    }
+
+    public long getRecordedCount() {
+        return recorded;
+    }
+
+    /**
+     * Frames skipped to stay within the budget, or too large for a slot.
+     */
+    public long getSkippedCount() {
+        return skipped;
+    }
+
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    /**
+     * Delete all but the newest keep RING_PREFIX*RING_SUFFIX files in dir, by modification
+     * time. Returns the number of files deleted.
+     */
+    public static int deleteOldRings(File dir, int keep) {
+        File[] rings = dir.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File parent, String name) {
+                return name.startsWith(RING_PREFIX) && name.endsWith(RING_SUFFIX);
+            }
+        });
+        if ((rings == null) || (rings.length <= keep)) {
+            return 0;
+        }
+        // newest first
+        Arrays.sort(rings, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.compare(b.lastModified(), a.lastModified());
+            }
+        });
+        int deleted = 0;
+        for (int i = Math.max(0, keep); i < rings.length; i++) {
+            if (rings[i].delete()) {
+                deleted++;
+            } else {
+                Log.e("MatchRecorder", "could not delete old ring file " + rings[i]);
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Flush the mapping to the file and close it. Call after the camera has stopped
+     * streaming, so record() is no longer running.
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        ring.force();
+        try {
+            channel.close();
+            file.close();
+        } catch (IOException e) {
+            Log.e(tag, "could not close ring file: " + e.getMessage());
+        }
+        rgbMat.release();
+        smallMat.release();
+    }
+}
@@ -21,20 +21,23 @@
 
 package org.firstinspires.ftc.teamcode;
 
+import android.util.Log;
+
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
 
 import org.firstinspires.ftc.robotcore.external.hardware.camera.WebcamName;
-import org.opencv.imgcodecs.Imgcodecs;
-import org.opencv.imgproc.Imgproc;
 import org.openftc.easyopencv.OpenCvCamera;
 import org.openftc.easyopencv.OpenCvCameraFactory;
 import org.openftc.easyopencv.OpenCvCameraRotation;
 import org.openftc.easyopencv.OpenCvWebcam;
 
+import java.io.File;
+import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
 @TeleOp
 public class OpModeDetectPropRed extends LinearOpMode
@@ -42,9 +45,17 @@ public class OpModeDetectPropRed extends LinearOpMode
     OpenCvWebcam webcam;
 
     PipelinePropRed pipeline;
+    PipelineGovernor governor;
+
+    volatile MatchRecorder recorder;
+    boolean recordMatch = false;
+    volatile long exposure = -1;  // microseconds, read once the camera is open
+    SnapshotWriter snapshots = new SnapshotWriter("DetectPropRed");
 
     int propIsHere = 0;
     String propStr = "";
+    long lastSequence = -1;
+    int staleLoops = 0;
 
     @Override
     public void runOpMode()
@@ -53,69 +64,164 @@ public class OpModeDetectPropRed extends LinearOpMode
         webcam = OpenCvCameraFactory.getInstance().createWebcam(hardwareMap.get(WebcamName.class, "Webcam 1"), cameraMonitorViewId);
 
         pipeline = new PipelinePropRed();
-        webcam.setPipeline(pipeline);
+        // process fewer frames once the prop position is stable and the scene is still; the
+        // governor already skips still frames, so the pipeline's own change gate stays off
+        governor = new PipelineGovernor(pipeline);
+        webcam.setPipeline(governor);
+        pipeline.getEventLog().start();
+        snapshots.start();
         webcam.setMillisecondsPermissionTimeout(5000); // Timeout for obtaining permission is configurable. Set before opening.
         webcam.openCameraDeviceAsync(new OpenCvCamera.AsyncCameraOpenListener()
         {
             @Override
             public void onOpened() {
                 webcam.startStreaming(320, 240, OpenCvCameraRotation.UPRIGHT);
+                // read once; the control call is too slow for every telemetry loop
+                exposure = webcam.getExposureControl().getExposure(TimeUnit.MICROSECONDS);
+                MatchRecorder matchRecorder = recorder;
+                if (matchRecorder != null) {
+                    matchRecorder.setExposure(exposure);
+                }
             }
             @Override
             public void onError(int errorCode) {}
         });
 
-        telemetry.addLine("Waiting for start");
-        telemetry.update();
-
         /*
-         * Wait for the user to press start on the Driver Station
+         * Wait for the user to press start on the Driver Station; X on gamepad 1 switches
+         * match recording on or off until then
          */
+        boolean xWasPressed = false;
+        while (!isStarted() && !isStopRequested()) {
+            if (gamepad1.x && !xWasPressed) {
+                recordMatch = !recordMatch;
+            }
+            xWasPressed = gamepad1.x;
+            telemetry.addLine("Waiting for start");
+            telemetry.addData("Match recording", recordMatch ? "ON (X to turn off)" : "off (X to turn on)");
+            telemetry.update();
+            sleep(50);
+        }
         waitForStart();
+        if (recordMatch) {
+            startRecorder();
+        }
+        pipeline.getVoter().reset();
+        // nobody watches the RC screen during the match; skip the display overlay
+        pipeline.setLiveView(false);
 
         while (opModeIsActive()) {
             if (propIsHere == 0) {
 
+                PropVoter voter = pipeline.getVoter();
                 telemetry.addData("Looking for Prop", "");
+                addResultTelemetry();
+                telemetry.addData("Frames", voter.getFrameCount());
+                telemetry.addData("Posterior", String.format(Locale.US, "L %.2f C %.2f R %.2f",
+                        voter.getPosterior(1), voter.getPosterior(2), voter.getPosterior(3)));
+                addStageTelemetry();
                 telemetry.update();
 
-                int foundPropHere = pipeline.foundPropHere;
-                if (foundPropHere > 0) {
-                    propIsHere = foundPropHere;
+                // decided once enough frames agree, or a best guess at the deadline
+                int decision = voter.checkDeadline();
+                if (decision > 0) {
+                    propIsHere = decision;
                     switch (propIsHere) {
                         case 1: propStr = "LEFT"; break;
                         case 2: propStr = "CENTER"; break;
                         case 3: propStr = "RIGHT"; break;
                         default: propStr = "WHAT??"; break;
                     }
-                    webcam.stopStreaming();
-                    // put left, center circles into saved image
-                    Imgproc.circle(
-                            pipeline.fileMat,       // Mat img - input/output image
-                            pipeline.leftPoint,     // Point center
-                            3,                      // int radius
-                            pipeline.leftColor,     // Scalar color
-                            3                       // int thickness
-                    );
-                    Imgproc.circle(
-                            pipeline.fileMat,       // Mat img - input/output image
-                            pipeline.centerPoint,   // Point center
-                            3,                      // int radius
-                            pipeline.centerColor,   // Scalar color
-                            3                       // int thickness
-                    );
                     SimpleDateFormat dateFormat = new SimpleDateFormat ("yyyy-MM-dd@HH-mm-ss", Locale.US);
-                    Imgcodecs.imwrite("/sdcard/FIRST/" + "image_" + dateFormat.format (new Date())+".jpg", pipeline.fileMat);
+                    // the frame worker saves its next frame with the spike mark circles drawn in
+                    pipeline.requestSnapshot(snapshots, new File("/sdcard/FIRST/" + "image_" + dateFormat.format (new Date())+".jpg"));
                 }
 
             } else {
 
                 telemetry.addData("Prop is ", propStr);
+                telemetry.addData("Decided", String.format(Locale.US, "%d frames, %.0f ms, p=%.3f%s",
+                        pipeline.getVoter().getDecisionFrames(), pipeline.getVoter().getDecisionMs(),
+                        pipeline.getVoter().getDecisionPosterior(),
+                        pipeline.getVoter().isDecidedByDeadline() ? " (deadline)" : ""));
+                addStageTelemetry();
                 telemetry.update();
 
             }
             sleep(50);
         } // while opModeIsActive
+
+        // the camera keeps streaming after the decision; stop it before closing the match recording
+        webcam.stopStreaming();
+        if (recorder != null) {
+            pipeline.setRecorder(null);
+            recorder.close();
+        }
+        // the mask threads and native buffers outlive the OpMode otherwise
+        pipeline.release();
+
+        // write out queued snapshots before the OpMode ends
+        snapshots.stop();
+
+        // drain the per-frame event log and keep the last frames for post-match debugging
+        pipeline.getEventLog().stop();
+        try {
+            SimpleDateFormat eventDateFormat = new SimpleDateFormat ("yyyy-MM-dd@HH-mm-ss", Locale.US);
+            pipeline.getEventLog().dumpTo(new File("/sdcard/FIRST/" + "events_" + eventDateFormat.format (new Date())+".csv"));
+        } catch (IOException e) {
+            Log.e("DetectPropRed", "could not write event log: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Record the match into a new ring file, keeping only the newest few rings on the Hub.
+     */
+    private void startRecorder() {
+        File dir = new File("/sdcard/FIRST/");
+        MatchRecorder.deleteOldRings(dir, MatchRecorder.DEFAULT_KEPT_RINGS - 1);
+        try {
+            SimpleDateFormat ringDateFormat = new SimpleDateFormat ("yyyy-MM-dd@HH-mm-ss", Locale.US);
+            recorder = new MatchRecorder(new File(dir, MatchRecorder.RING_PREFIX + ringDateFormat.format (new Date()) + MatchRecorder.RING_SUFFIX));
+            if (exposure >= 0) {
+                recorder.setExposure(exposure);
+            }
+            pipeline.setRecorder(recorder);
+        } catch (IOException e) {
+            Log.e("DetectPropRed", "match recorder not available: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Latest frame result: how old it is, how long the pipeline took, and how many
+     * loops in a row saw no new frame.
+     */
+    private void addResultTelemetry() {
+        DetectionResult result = pipeline.getResult();
+        if (result.sequence == lastSequence) {
+            staleLoops++;
+        } else {
+            staleLoops = 0;
+            lastSequence = result.sequence;
+        }
+        telemetry.addData("Result", String.format(Locale.US, "frame %d  age %.0f ms  latency %.1f ms  stale loops %d",
+                result.sequence, result.getAgeMs(), result.getLatencyMs(), staleLoops));
+    }
+
+    /**
+     * Per-stage pipeline latency, to see which stage blows the frame budget.
+     */
+    private void addStageTelemetry() {
+        StageLatencies latencies = pipeline.getStageLatencies();
+        for (PipelineStage stage : PipelineStage.values()) {
+            telemetry.addData(stage.name(), StageLatencies.summary(latencies.get(stage)));
+        }
+        telemetry.addData("FRAME", StageLatencies.summary(latencies.getFrame()));
+        telemetry.addData("GOVERNOR", String.format(Locale.US, "%.1f of %.1f fps  interval %d  saved %.0f ms",
+                governor.getEffectiveFps(), governor.getInputFps(), governor.getInterval(), governor.getSavedMs()));
+        if (recorder != null) {
+            telemetry.addData("RECORD", StageLatencies.summary(recorder.getRecordLatency())
+                    + " skipped " + recorder.getSkippedCount());
+        }
     }
 
 }
\ No newline at end of file
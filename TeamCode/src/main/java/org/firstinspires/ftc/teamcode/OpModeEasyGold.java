@@ -21,6 +21,8 @@
 
 package org.firstinspires.ftc.teamcode;
 
+import android.util.Log;
+
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
 
@@ -29,7 +31,6 @@ import org.opencv.core.Mat;
 import org.opencv.core.MatOfPoint;
 import org.opencv.core.Point;
 import org.opencv.core.Scalar;
-import org.opencv.imgcodecs.Imgcodecs;
 import org.opencv.imgproc.Imgproc;
 import org.openftc.easyopencv.OpenCvCamera;
 import org.openftc.easyopencv.OpenCvCameraFactory;
@@ -37,8 +38,12 @@ import org.openftc.easyopencv.OpenCvCameraRotation;
 import org.openftc.easyopencv.OpenCvPipeline;
 import org.openftc.easyopencv.OpenCvWebcam;
 
+import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
 
 @TeleOp
 public class OpModeEasyGold extends LinearOpMode
@@ -46,6 +51,9 @@ public class OpModeEasyGold extends LinearOpMode
     OpenCvWebcam webcam;
 
     GoldPipeline pipeline;
+    SnapshotWriter snapshots = new SnapshotWriter("EasyGold");
+    boolean snapshotRequested = false;
+    boolean streamStopped = false;
 
     @Override
     public void runOpMode()
@@ -72,7 +80,10 @@ public class OpModeEasyGold extends LinearOpMode
          * (while a streaming session is in flight) *IS* supported.
          */
         pipeline = new GoldPipeline();
+        pipeline.setMode(GoldPipeline.Mode.FUSED);
         webcam.setPipeline(pipeline);
+        pipeline.getEventLog().start();
+        snapshots.start();
         /*
          * Open the connection to the camera device. New in v1.4.0 is the ability
          * to open the camera asynchronously, and this is now the recommended way
@@ -123,6 +134,8 @@ public class OpModeEasyGold extends LinearOpMode
          * Wait for the user to press start on the Driver Station
          */
         waitForStart();
+        // nobody watches the RC screen during the match; only snapshots get an overlay
+        pipeline.setLiveView(false);
 
         while (opModeIsActive())
         {
@@ -135,6 +148,11 @@ public class OpModeEasyGold extends LinearOpMode
             telemetry.addData("Pipeline time ms", webcam.getPipelineTimeMs());
             telemetry.addData("Overhead time ms", webcam.getOverheadTimeMs());
             telemetry.addData("Theoretical max FPS", webcam.getCurrentPipelineMaxFps());
+            StageLatencies latencies = pipeline.getStageLatencies();
+            telemetry.addData("MASK", StageLatencies.summary(latencies.get(PipelineStage.MASK)));
+            telemetry.addData("CONTOURS", StageLatencies.summary(latencies.get(PipelineStage.CONTOURS)));
+            telemetry.addData("CLASSIFY", StageLatencies.summary(latencies.get(PipelineStage.CLASSIFY)));
+            telemetry.addData("RENDER", StageLatencies.summary(latencies.get(PipelineStage.RENDER)));
             telemetry.update();
 
             /*
@@ -142,7 +160,13 @@ public class OpModeEasyGold extends LinearOpMode
              * when it will be automatically stopped for you) *IS* supported. The "if" statement
              * below will stop streaming from the camera when the "A" button on gamepad 1 is pressed.
              */
-            if(pipeline.isFound())
+            if(pipeline.isFound() && !snapshotRequested)
+            {
+                // the frame worker builds the save-to-file image from its next frame
+                pipeline.requestSnapshot(snapshots, new File("/sdcard/image.jpg"));
+                snapshotRequested = true;
+            }
+            if(snapshotRequested && !pipeline.isSnapshotPending() && !streamStopped)
             {
                 /*
                  * IMPORTANT NOTE: calling stopStreaming() will indeed stop the stream of images
@@ -164,10 +188,10 @@ public class OpModeEasyGold extends LinearOpMode
                  * the above "important note".
                  */
                 webcam.stopStreaming();
-                Imgcodecs.imwrite("/sdcard/image.jpg", pipeline.fileMat);
+                streamStopped = true;
                 try {
                     FileWriter writer = new FileWriter("/sdcard/icontours.txt");
-                    for (MatOfPoint c: pipeline.contourList) {
+                    for (MatOfPoint c: pipeline.getContourList()) {
                         double area = Imgproc.contourArea(c);
                         writer.write(area + "  " +c + "\n");
                         for (Point p: c.toList()){
@@ -180,6 +204,18 @@ public class OpModeEasyGold extends LinearOpMode
             }
 
         }
+
+        // write out queued snapshots before the OpMode ends
+        snapshots.stop();
+
+        // drain the per-frame event log and keep the last frames for post-match debugging
+        pipeline.getEventLog().stop();
+        try {
+            SimpleDateFormat eventDateFormat = new SimpleDateFormat ("yyyy-MM-dd@HH-mm-ss", Locale.US);
+            pipeline.getEventLog().dumpTo(new File("/sdcard/FIRST/" + "events_" + eventDateFormat.format (new Date())+".csv"));
+        } catch (IOException e) {
+            Log.e("EasyGold", "could not write event log: " + e.getMessage());
+        }
     }
 
 }
\ No newline at end of file
@@ -21,19 +21,21 @@
 
 package org.firstinspires.ftc.teamcode;
 
+import android.util.Log;
+
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
 
 import org.firstinspires.ftc.robotcore.external.hardware.camera.WebcamName;
 import org.opencv.core.MatOfPoint;
 import org.opencv.core.Point;
-import org.opencv.imgcodecs.Imgcodecs;
 import org.opencv.imgproc.Imgproc;
 import org.openftc.easyopencv.OpenCvCamera;
 import org.openftc.easyopencv.OpenCvCameraFactory;
 import org.openftc.easyopencv.OpenCvCameraRotation;
 import org.openftc.easyopencv.OpenCvWebcam;
 
+import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
@@ -44,6 +46,7 @@ import java.util.Locale;
 public class OpModeTakeImage extends LinearOpMode {
     OpenCvWebcam webcam;
     PipelineNull pipeline;
+    SnapshotWriter snapshots = new SnapshotWriter("TakeImage");
 
     @Override
     public void runOpMode() {
@@ -56,6 +59,8 @@ public class OpModeTakeImage extends LinearOpMode {
 
         pipeline = new PipelineNull();
         webcam.setPipeline(pipeline);
+        pipeline.getEventLog().start();
+        snapshots.start();
         webcam.setMillisecondsPermissionTimeout(5000); // Timeout for obtaining permission is configurable. Set before opening.
         webcam.openCameraDeviceAsync(new OpenCvCamera.AsyncCameraOpenListener()
         {
@@ -90,6 +95,8 @@ public class OpModeTakeImage extends LinearOpMode {
             telemetry.addData("Buttons", "B=Freeze Y=Image A=Resume");
             telemetry.addData("isFrozen", isFrozen);
             telemetry.addData("imageTake", imageTaken);
+            telemetry.addData("Snapshots", "written %d dropped %d queued %d",
+                    snapshots.getWrittenCount(), snapshots.getDroppedCount(), snapshots.getQueuedCount());
             telemetry.addData("Frame Count", webcam.getFrameCount());
             telemetry.addData("FPS", String.format("%.2f", webcam.getFps()));
             telemetry.addData("Total frame time ms", webcam.getTotalFrameTimeMs());
@@ -110,9 +117,21 @@ public class OpModeTakeImage extends LinearOpMode {
            }
            if (gamepad1.y && isFrozen && !imageTaken) {
                SimpleDateFormat dateFormat = new SimpleDateFormat ("yyyy-MM-dd@HH-mm-ss", Locale.US);
-               Imgcodecs.imwrite("/sdcard/FIRST/" + "image_" + dateFormat.format (new Date())+".jpg", pipeline.fileMat);
+               snapshots.submit(pipeline.fileMat, new File("/sdcard/FIRST/" + "image_" + dateFormat.format (new Date())+".jpg"));
                imageTaken = true;
             }
         }
+
+        // write out queued snapshots before the OpMode ends
+        snapshots.stop();
+
+        // drain the per-frame event log and keep the last frames for post-match debugging
+        pipeline.getEventLog().stop();
+        try {
+            SimpleDateFormat eventDateFormat = new SimpleDateFormat ("yyyy-MM-dd@HH-mm-ss", Locale.US);
+            pipeline.getEventLog().dumpTo(new File("/sdcard/FIRST/" + "events_" + eventDateFormat.format (new Date())+".csv"));
+        } catch (IOException e) {
+            Log.e("TakeImage", "could not write event log: " + e.getMessage());
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,271 @@
+package org.firstinspires.ftc.teamcode;
+
+import android.util.Log;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-frame event recorder for the vision pipelines: frame index, start/end timestamps,
+ * stage durations and the detection result, written into a preallocated ring of longs.
+ *
+ * The frame worker thread only ever writes array slots and bumps a volatile counter, so it
+ * never blocks or allocates. A background thread started with start() drains new events to
+ * logcat (or a CSV file) at a low rate, and dumpTo() writes the last events out when the
+ * OpMode ends. When the ring wraps before the drainer catches up, the oldest events are
+ * overwritten and counted as lost.
+ *
+ * Each slot carries the number of the event in it, which the writer sets to -1 before it
+ * fills the slot and to the event number after. A reader copies a slot only between two
+ * reads of that number that both show the event it wants, so it drops a slot the writer is
+ * filling or has refilled instead of returning a torn event. Slot numbers and fields are
+ * atomic array elements, so every access is a volatile one and the Java memory model
+ * orders the writer's field stores between its two number stores as the reader sees them.
+ */
+public class PipelineEventLog {
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final long DEFAULT_DRAIN_PERIOD_MS = 1000;
+
+    private static final PipelineStage[] STAGES = PipelineStage.values();
+    private static final int F_FRAME  = 0;
+    private static final int F_START  = 1;
+    private static final int F_END    = 2;
+    private static final int F_RESULT = 3;
+    private static final int F_STAGES = 4;
+    private static final int FIELDS   = F_STAGES + STAGES.length;
+
+    private final String tag;
+    private final int capacity;
+    private final AtomicLongArray slots;
+    private final AtomicLongArray slotEvents;  // event in each slot, -1 while it is being written
+    private volatile long written = 0;  // events published so far; slot of event n is n % capacity
+
+    private Thread drainer;
+    private volatile boolean draining = false;
+    private long drained = 0;           // drainer cursor, only touched by the drainer
+    private volatile long lost = 0;
+    private Writer drainWriter;
+
+    public PipelineEventLog(String tag) {
+        this(tag, DEFAULT_CAPACITY);
+    }
+
+    public PipelineEventLog(String tag, int capacity) {
+        this.tag = tag;
+        this.capacity = capacity;
+        this.slots = new AtomicLongArray(capacity * FIELDS);
+        this.slotEvents = new AtomicLongArray(capacity);
+        for (int slot = 0; slot < capacity; slot++) {
+            slotEvents.set(slot, -1);
+        }
+    }
+
+    /**
+     * Record one frame. Stage durations are the last sample of each StageLatencies histogram
+     * (0 for stages the pipeline does not have); latencies may be null.
+     * Must only be called from one thread, the frame worker.
+     */
+    public void record(long frameIndex, long startNs, long endNs, int result, StageLatencies latencies) {
+        long n = written;
+        int slot = (int) (n % capacity);
+        int base = slot * FIELDS;
+        slotEvents.set(slot, -1);
+        slots.set(base + F_FRAME, frameIndex);
+        slots.set(base + F_START, startNs);
+        slots.set(base + F_END, endNs);
+        slots.set(base + F_RESULT, result);
+        for (int s = 0; s < STAGES.length; s++) {
+            LatencyHistogram histogram = (latencies != null) ? latencies.get(STAGES[s]) : null;
+            slots.set(base + F_STAGES + s, ((histogram != null) && (histogram.count() > 0)) ? histogram.lastNs() : 0);
+        }
+        slotEvents.set(slot, n);
+        written = n + 1;
+    }
+
+    public long getWrittenCount() {
+        return written;
+    }
+
+    public long getLostCount() {
+        return lost;
+    }
+
+    /**
+     * Start draining new events to logcat every periodMs.
+     */
+    public void start() {
+        start(null, DEFAULT_DRAIN_PERIOD_MS);
+    }
+
+    /**
+     * Start draining new events every periodMs, as CSV lines to csvFile, or to logcat when null.
+     */
+    public synchronized void start(File csvFile, long periodMs) {
+        if (drainer != null) {
+            return;
+        }
+        if (csvFile != null) {
+            try {
+                drainWriter = new BufferedWriter(new FileWriter(csvFile));
+                drainWriter.write(csvHeader());
+            } catch (IOException e) {
+                Log.e(tag, "could not open event log " + csvFile + ": " + e.getMessage());
+                drainWriter = null;
+            }
+        }
+        drained = Math.max(0, written - capacity);
+        draining = true;
+        final long period = periodMs;
+        drainer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (draining) {
+                    drain();
+                    try {
+                        Thread.sleep(period);
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                }
+                drain();
+            }
+        }, "PipelineEventLog-" + tag);
+        drainer.setDaemon(true);
+        drainer.setPriority(Thread.MIN_PRIORITY);
+        drainer.start();
+    }
+
+    /**
+     * Stop the drain thread after a final drain, and close the CSV file if there is one.
+     */
+    public synchronized void stop() {
+        if (drainer == null) {
+            return;
+        }
+        draining = false;
+        drainer.interrupt();
+        try {
+            drainer.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        drainer = null;
+        if (drainWriter != null) {
+            try {
+                drainWriter.close();
+            } catch (IOException e) {
+                Log.e(tag, "could not close event log: " + e.getMessage());
+            }
+            drainWriter = null;
+        }
+    }
+
+    /**
+     * Write every event still held in the ring to a CSV file.
+     */
+    public void dumpTo(File csvFile) throws IOException {
+        long[] event = new long[FIELDS];
+        StringBuilder line = new StringBuilder();
+        try (Writer writer = new BufferedWriter(new FileWriter(csvFile))) {
+            writer.write(csvHeader());
+            long end = written;
+            for (long n = Math.max(0, end - capacity); n < end; n++) {
+                if (read(n, event)) {
+                    line.setLength(0);
+                    appendCsv(line, event);
+                    writer.write(line.toString());
+                }
+            }
+        }
+    }
+
+    private void drain() {
+        long[] event = new long[FIELDS];
+        StringBuilder line = new StringBuilder();
+        long end = written;
+        if (end - drained > capacity) {
+            lost += end - drained - capacity;
+            drained = end - capacity;
+        }
+        for (; drained < end; drained++) {
+            if (!read(drained, event)) {
+                lost++;
+                continue;
+            }
+            line.setLength(0);
+            if (drainWriter != null) {
+                appendCsv(line, event);
+                try {
+                    drainWriter.write(line.toString());
+                } catch (IOException e) {
+                    Log.e(tag, "could not write event log: " + e.getMessage());
+                    drainWriter = null;
+                }
+            } else {
+                appendText(line, event);
+                Log.d(tag, line.toString());
+            }
+        }
+        if (drainWriter != null) {
+            try {
+                drainWriter.flush();
+            } catch (IOException e) {
+                Log.e(tag, "could not flush event log: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Copy event n out of the ring; false if its slot no longer holds it, or the writer
+     * started refilling the slot while it was being copied.
+     */
+    private boolean read(long n, long[] event) {
+        int slot = (int) (n % capacity);
+        if (slotEvents.get(slot) != n) {
+            return false;
+        }
+        int base = slot * FIELDS;
+        for (int f = 0; f < FIELDS; f++) {
+            event[f] = slots.get(base + f);
+        }
+        // the writer may have lapped us while we were copying
+        return slotEvents.get(slot) == n;
+    }
+
+    private static String csvHeader() {
+        StringBuilder header = new StringBuilder("frame,start_ns,end_ns,total_ms,result");
+        for (PipelineStage stage : STAGES) {
+            header.append(',').append(stage.name().toLowerCase(Locale.US)).append("_ms");
+        }
+        return header.append('\n').toString();
+    }
+
+    private static void appendCsv(StringBuilder line, long[] event) {
+        line.append(event[F_FRAME]).append(',')
+            .append(event[F_START]).append(',')
+            .append(event[F_END]).append(',')
+            .append(String.format(Locale.US, "%.3f", (event[F_END] - event[F_START]) / 1e6)).append(',')
+            .append(event[F_RESULT]);
+        for (int s = 0; s < STAGES.length; s++) {
+            line.append(',').append(String.format(Locale.US, "%.3f", event[F_STAGES + s] / 1e6));
+        }
+        line.append('\n');
+    }
+
+    private static void appendText(StringBuilder line, long[] event) {
+        line.append("frame ").append(event[F_FRAME])
+            .append(String.format(Locale.US, " %.2f ms", (event[F_END] - event[F_START]) / 1e6))
+            .append(" result ").append(event[F_RESULT]);
+        for (int s = 0; s < STAGES.length; s++) {
+            if (event[F_STAGES + s] > 0) {
+                line.append(' ').append(STAGES[s].name().toLowerCase(Locale.US))
+                    .append(String.format(Locale.US, " %.2f", event[F_STAGES + s] / 1e6));
+            }
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.Mat;
+import org.openftc.easyopencv.OpenCvPipeline;
+import org.openftc.easyopencv.TimestampedOpenCvPipeline;
+
+/**
+ * Adaptive frame-rate governor around a detection pipeline. Set the governor as the camera's
+ * pipeline instead of the wrapped one; it passes frames through at full rate until the
+ * result is stable and the scene is still, then processes only every interval-th frame.
+ * Skipped frames cost one SceneChangeDetector check and show the last processed output.
+ *
+ * The result is stable once stableFrames processed frames in a row report the same
+ * position; from then on the interval doubles with every further agreeing frame, up to
+ * maxInterval. A scene change above changeThreshold levels (measured against the last
+ * processed frame) or a different position drops straight back to full rate, so the
+ * pipeline sees the first changed frame.
+ *
+ * getEffectiveFps() is the processed frame rate over the last second, getInputFps() the
+ * camera's. getSavedMs() estimates the CPU time saved: for each skipped frame, the average
+ * cost of a processed frame minus the cost of the check.
+ */
+public class PipelineGovernor extends TimestampedOpenCvPipeline {
+    public static final int DEFAULT_STABLE_FRAMES = 5;
+    public static final int DEFAULT_MAX_INTERVAL = 8;
+    public static final double DEFAULT_CHANGE_THRESHOLD = 24.0;
+
+    private static final long FPS_WINDOW_NS = 1000000000L;
+
+    private final OpenCvPipeline pipeline;
+    private final DetectionSource source;
+    private final SceneChangeDetector changeDetector = new SceneChangeDetector();
+
+    private volatile boolean enabled = true;
+    private volatile int stableFrames = DEFAULT_STABLE_FRAMES;
+    private volatile int maxInterval = DEFAULT_MAX_INTERVAL;
+    private volatile double changeThreshold = DEFAULT_CHANGE_THRESHOLD;
+
+    // only touched by the frame worker
+    private Mat lastOutput;
+    private int lastPosition = -1;
+    private int agreeingFrames = 0;
+    private int skipsLeft = 0;
+    private double processNsAverage = 0;
+    private long windowStartNs = 0;
+    private boolean windowStarted = false;
+    private int windowFrames = 0;
+    private int windowProcessed = 0;
+
+    private volatile int interval = 1;
+    private volatile long processed = 0;
+    private volatile long skipped = 0;
+    private volatile long savedNs = 0;
+    private volatile double inputFps = 0;
+    private volatile double effectiveFps = 0;
+
+    /**
+     * Govern pipeline, which must publish its results (PropPipeline, GoldPipeline).
+     */
+    public <P extends OpenCvPipeline & DetectionSource> PipelineGovernor(P pipeline) {
+        this.pipeline = pipeline;
+        this.source = pipeline;
+    }
+
+    public OpenCvPipeline getPipeline() {
+        return pipeline;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turn governing on or off; off processes every frame. Effective from the next frame.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Processed frames in a row with the same position before the rate is lowered.
+     */
+    public void setStableFrames(int stableFrames) {
+        if (stableFrames < 1) {
+            throw new IllegalArgumentException("stableFrames must be at least 1, was " + stableFrames);
+        }
+        this.stableFrames = stableFrames;
+    }
+
+    /**
+     * Longest run of frames per processed frame, e.g. 8 processes 30 fps at 3.75 fps.
+     */
+    public void setMaxInterval(int maxInterval) {
+        if (maxInterval < 1) {
+            throw new IllegalArgumentException("maxInterval must be at least 1, was " + maxInterval);
+        }
+        this.maxInterval = maxInterval;
+    }
+
+    /**
+     * Difference of the most changed scene thumbnail pixel, in levels, that counts as a scene
+     * change (see SceneChangeDetector).
+     */
+    public void setChangeThreshold(double changeThreshold) {
+        this.changeThreshold = changeThreshold;
+    }
+
+    @Override
+    public void init(Mat firstFrame) {
+        pipeline.init(firstFrame);
+    }
+
+    @Override
+    public void onViewportTapped() {
+        pipeline.onViewportTapped();
+    }
+
+    @Override
+    public Mat processFrame(Mat input, long captureTimeNanos) {
+        long startNs = System.nanoTime();
+        double change = changeDetector.score(input);
+        boolean changed = change > changeThreshold;
+        if (changed || !enabled) {
+            interval = 1;
+            skipsLeft = 0;
+            agreeingFrames = 0;
+        }
+
+        boolean skip = (skipsLeft > 0) && (lastOutput != null);
+        if (skip) {
+            skipsLeft--;
+            skipped++;
+            savedNs += Math.max(0, (long) processNsAverage - (System.nanoTime() - startNs));
+        } else {
+            if (pipeline instanceof TimestampedOpenCvPipeline) {
+                lastOutput = ((TimestampedOpenCvPipeline) pipeline).processFrame(input, captureTimeNanos);
+            } else {
+                lastOutput = pipeline.processFrame(input);
+            }
+            changeDetector.accept();
+            long processNs = System.nanoTime() - startNs;
+            processNsAverage = (processed == 0) ? processNs : (0.9 * processNsAverage + 0.1 * processNs);
+            processed++;
+            adjustInterval(source.getResult().position);
+        }
+        updateFps(captureTimeNanos, !skip);
+        return lastOutput;
+    }
+
+    private void adjustInterval(int position) {
+        if (position == lastPosition) {
+            agreeingFrames++;
+        } else {
+            lastPosition = position;
+            agreeingFrames = 1;
+        }
+        int next = 1;
+        if (enabled && (agreeingFrames >= stableFrames)) {
+            next = Math.min(maxInterval, Math.max(2, interval * 2));
+        }
+        interval = next;
+        skipsLeft = next - 1;
+    }
+
+    private void updateFps(long nowNs, boolean processedFrame) {
+        if (!windowStarted) {
+            windowStartNs = nowNs;
+            windowStarted = true;
+            return;
+        }
+        windowFrames++;
+        if (processedFrame) {
+            windowProcessed++;
+        }
+        long elapsed = nowNs - windowStartNs;
+        if (elapsed >= FPS_WINDOW_NS) {
+            inputFps = windowFrames * 1e9 / elapsed;
+            effectiveFps = windowProcessed * 1e9 / elapsed;
+            windowStartNs = nowNs;
+            windowFrames = 0;
+            windowProcessed = 0;
+        }
+    }
+
+    /**
+     * Current frames per processed frame; 1 is full rate.
+     */
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * Processed frames per second over the last second.
+     */
+    public double getEffectiveFps() {
+        return effectiveFps;
+    }
+
+    /**
+     * Camera frames per second over the last second.
+     */
+    public double getInputFps() {
+        return inputFps;
+    }
+
+    public long getProcessedCount() {
+        return processed;
+    }
+
+    public long getSkippedCount() {
+        return skipped;
+    }
+
+    /**
+     * Estimated frame worker CPU time saved by skipped frames.
+     */
+    public double getSavedMs() {
+        return savedNs / 1e6;
+    }
+
+    /**
+     * Scene change score of the last frame, see SceneChangeDetector.
+     */
+    public double getLastChange() {
+        return changeDetector.getLastScore();
+    }
+}
@@ -1,7 +1,5 @@
 package org.firstinspires.ftc.teamcode;
 
-import android.util.Log;
-
 import org.opencv.core.Mat;
 import org.opencv.imgproc.Imgproc;
 import org.openftc.easyopencv.OpenCvPipeline;
@@ -13,9 +11,18 @@ import org.openftc.easyopencv.OpenCvPipeline;
  */
 public class PipelineNull extends OpenCvPipeline {
     private final String TAG = this.getClass().getSimpleName();
+    private final PipelineEventLog eventLog = new PipelineEventLog(TAG);
+    private long frameIndex = 0;
     private Mat displayMat = new Mat(); // Image Mat to be displayed on screen
     public  Mat fileMat    = new Mat(); // Image Mat to hold image to write to a file
 
+    /**
+     * Per-frame event log; start() it from the OpMode to drain it to logcat.
+     */
+    public PipelineEventLog getEventLog() {
+        return eventLog;
+    }
+
     /**
      * Method declared in OpenCVAgent
      * Put all code to process camera frames into this method.
@@ -23,12 +30,14 @@ public class PipelineNull extends OpenCvPipeline {
     @Override
     public Mat processFrame(Mat input) {
         
-        Log.d(TAG, "processing frame");
+        long startNs = System.nanoTime();
 
         Imgproc.cvtColor(input, fileMat, Imgproc.COLOR_BGR2RGB);;
 
         input.copyTo(displayMat);
 
+        eventLog.record(frameIndex++, startNs, System.nanoTime(), 0, null);
+
         return displayMat;
     }
 
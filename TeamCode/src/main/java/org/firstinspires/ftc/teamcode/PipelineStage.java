@@ -0,0 +1,13 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * Stages of the vision pipelines whose latency is tracked by StageLatencies.
+ */
+public enum PipelineStage {
+    CROP,       // crop to the region of interest
+    MASK,       // color conversion and masking
+    CONTOURS,   // contour or blob extraction
+    FILTER,     // contour filtering by size
+    CLASSIFY,   // deciding the detection result
+    RENDER      // composing the display overlay
+}
@@ -0,0 +1,252 @@
+package org.firstinspires.ftc.teamcode;
+
+import android.util.Log;
+
+import org.opencv.core.Mat;
+import org.openftc.easyopencv.TimestampedOpenCvPipeline;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Prop pipeline split into two stages on two threads. EasyOpenCV calls processFrame()
+ * serially on one frame worker, so a plain PropPipeline runs at most 1 / (sum of its stage
+ * times); here the frame worker only crops and masks (PropPipeline.processMaskStage()) while
+ * an analysis thread finds, filters and classifies the previous frame's shapes
+ * (processAnalysisStage()), for at most 1 / (slower stage) when a second core is free.
+ *
+ * Masks are handed over in SLOTS double-buffered Mats through bounded queues: the frame worker
+ * takes a free slot (waiting for one if both are in use, so it never runs more than one frame
+ * ahead), masks into it and queues it; the analysis thread publishes the result and returns
+ * the slot. Results are therefore up to one frame behind the display. getLatencies() times
+ * each frame from the start of masking to its published result.
+ *
+ * Configure masking (crop mode, mask backend, pyramid scale, live view) on getMaskStage() and
+ * shapes (shape and classify backends) on getAnalysisStage(), whose voter and results are the
+ * ones to read. setPipelined(false) runs both stages on the frame worker instead, for
+ * comparison. Call stop() when the OpMode ends.
+ */
+public class PipelinedPropPipeline extends TimestampedOpenCvPipeline implements DetectionSource {
+    public static final int SLOTS = 2;
+
+    private static class Slot {
+        final Mat mask = new Mat();
+        int offsetX;
+        int offsetY;
+        long captureTimeNanos;
+        long startNs;
+    }
+
+    private final String TAG = this.getClass().getSimpleName();
+    private final PropPipeline maskStage;
+    private final PropPipeline analysisStage;
+    private final Slot[] slots = new Slot[SLOTS];
+    private final ArrayBlockingQueue<Slot> free = new ArrayBlockingQueue<>(SLOTS);
+    private final ArrayBlockingQueue<Slot> ready = new ArrayBlockingQueue<>(SLOTS);
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    private volatile boolean pipelined = true;
+    private Thread analyzer;  // guarded by this
+    private volatile long handoffWaitNs = 0;
+    private volatile long frames = 0;
+
+    public PipelinedPropPipeline(PropProfile profile) {
+        this.maskStage = new PropPipeline(profile);
+        this.analysisStage = new PropPipeline(profile);
+        for (int i = 0; i < SLOTS; i++) {
+            slots[i] = new Slot();
+            free.add(slots[i]);
+        }
+    }
+
+    /**
+     * Crops and masks on the frame worker; configure masking and the overlay here.
+     */
+    public PropPipeline getMaskStage() {
+        return maskStage;
+    }
+
+    /**
+     * Finds and classifies shapes on the analysis thread; its voter decides.
+     */
+    public PropPipeline getAnalysisStage() {
+        return analysisStage;
+    }
+
+    @Override
+    public DetectionResult getResult() {
+        return analysisStage.getResult();
+    }
+
+    public PropVoter getVoter() {
+        return analysisStage.getVoter();
+    }
+
+    public boolean isPipelined() {
+        return pipelined;
+    }
+
+    /**
+     * Run the stages on two threads (the default) or both on the frame worker.
+     * Effective from the next frame.
+     */
+    public void setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+    }
+
+    /**
+     * Time from the start of a frame's masking to its published result.
+     */
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * Total time the frame worker waited for the analysis thread to free a slot.
+     */
+    public double getHandoffWaitMs() {
+        return handoffWaitNs / 1e6;
+    }
+
+    public long getFrameCount() {
+        return frames;
+    }
+
+    @Override
+    public void init(Mat firstFrame) {
+        maskStage.init(firstFrame);
+    }
+
+    @Override
+    public void onViewportTapped() {
+        maskStage.onViewportTapped();
+    }
+
+    @Override
+    public Mat processFrame(Mat input, long captureTimeNanos) {
+        long startNs = System.nanoTime();
+        frames++;
+        if (!pipelined) {
+            // serial: wait for anything still in flight, then both stages here
+            awaitIdle(Long.MAX_VALUE);
+            Slot slot = slots[0];
+            Mat display = maskStage.processMaskStage(input, slot.mask);
+            analysisStage.processAnalysisStage(slot.mask, maskStage.getMaskOffsetX(),
+                    maskStage.getMaskOffsetY(), captureTimeNanos, startNs);
+            latencies.record(System.nanoTime() - startNs);
+            return display;
+        }
+        startAnalyzer();
+        Slot slot;
+        try {
+            slot = free.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return input;
+        }
+        long maskStartNs = System.nanoTime();
+        handoffWaitNs += maskStartNs - startNs;
+        Mat display = maskStage.processMaskStage(input, slot.mask);
+        slot.offsetX = maskStage.getMaskOffsetX();
+        slot.offsetY = maskStage.getMaskOffsetY();
+        slot.captureTimeNanos = captureTimeNanos;
+        slot.startNs = maskStartNs;
+        ready.add(slot);  // never full: there are only SLOTS slots
+        return display;
+    }
+
+    private synchronized void startAnalyzer() {
+        if (analyzer != null) {
+            return;
+        }
+        analyzer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                analyzeLoop();
+            }
+        }, "PropAnalysis");
+        analyzer.setDaemon(true);
+        analyzer.start();
+    }
+
+    private void analyzeLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Slot slot;
+            try {
+                slot = ready.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                analysisStage.processAnalysisStage(slot.mask, slot.offsetX, slot.offsetY,
+                        slot.captureTimeNanos, slot.startNs);
+                latencies.record(System.nanoTime() - slot.startNs);
+            } catch (RuntimeException e) {
+                // keep the slot in circulation, or the frame worker would wait forever
+                Log.e(TAG, "analysis failed", e);
+            }
+            synchronized (this) {
+                free.add(slot);
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Wait until every queued frame has been analysed and published, or timeoutMs has
+     * passed. Returns true if nothing is left in flight.
+     */
+    public synchronized boolean awaitIdle(long timeoutMs) {
+        long deadline = System.currentTimeMillis() + Math.min(timeoutMs, Long.MAX_VALUE / 2);
+        while ((free.size() < SLOTS) && (analyzer != null)) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return free.size() == SLOTS;
+    }
+
+    /**
+     * Stop the analysis thread; frames still queued are dropped. A later frame starts it again.
+     */
+    public void stop() {
+        Thread thread;
+        synchronized (this) {
+            thread = analyzer;
+            analyzer = null;
+        }
+        if (thread == null) {
+            return;
+        }
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // return slots queued but never analysed
+        Slot slot;
+        while ((slot = ready.poll()) != null) {
+            free.add(slot);
+        }
+    }
+
+    /**
+     * stop(), then release both stage pipelines (see PropPipeline.release()), once the camera
+     * has stopped streaming to this pipeline.
+     */
+    public void release() {
+        stop();
+        for (Slot slot : free) {
+            slot.mask.release();
+        }
+        maskStage.release();
+        analysisStage.release();
+    }
+}
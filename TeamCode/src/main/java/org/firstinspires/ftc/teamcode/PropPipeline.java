@@ -0,0 +1,1078 @@
+package org.firstinspires.ftc.teamcode;
+
+import android.util.Log;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+import org.openftc.easyopencv.TimestampedOpenCvPipeline;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/**
+ * Processes camera images with OpenCV module calls to find the CenterStage team prop.
+ * The image is cropped to the spike marks, masked to the prop color, and the two
+ * remaining contours are classified as bare spike marks or a prop on a spike mark.
+ *
+ * Everything alliance specific comes from the PropProfile given to the constructor.
+ * In CropMode.ROI (the default) the crop link returns a view of just the profile's
+ * region of interest and every later link only touches those pixels; contours are
+ * offset back into full-frame coordinates. CropMode.BLANK is the original behavior of
+ * copying the whole frame and painting everything outside the ROI black.
+ *
+ * MaskBackend.HSV converts to HSV and tests the profile's bands; MaskBackend.RGB_LUT
+ * classifies RGB pixels directly with a lookup table built from the same bands.
+ * MaskBackend.CHROMA ignores the bands and thresholds one YCrCb chroma channel (Cr for red,
+ * Cb for blue), which needs no second band for red's hue wraparound.
+ * With a pyramid scale of 2 or 4 the mask is first computed on a shrunk image, and only
+ * the regions around its blobs are masked again at full resolution (see CoarseToFine).
+ * With several mask threads (setMaskThreads) the full-resolution mask is computed in
+ * horizontal bands in parallel (see RowBands). MaskCleanup.OPEN or CLOSE then removes specks
+ * or fills holes in the mask with 3x3 morphology on a bit-packed copy (see BitMask).
+ * ShapeBackend.CONTOURS traces contours of the masked image; ShapeBackend.BLOBS gets the
+ * same shape features from one connected-components pass over the binary mask, and
+ * ShapeBackend.RUNS from the mask's runs per row (see RunLengthMask), which stay available
+ * from getRunMask() until the next frame. Both report contour-equivalent areas (see
+ * BlobExtractor.contourArea()), so the profile's spikeMin/propMin hold for every backend.
+ * ClassifyBackend.REGIONS skips shapes altogether and reads the mask's fill of fixed spike
+ * mark zones from one integral image (see SpikeRegionSampler).
+ *
+ * Every processed frame's result is also fed to a PropVoter, which turns the stream of per-frame
+ * results into one decision; OpModes should act on getVoter() rather than single frames.
+ * The result of each frame is published as an immutable DetectionResult, see getResult().
+ * With the change gate on (setChangeGate), frames nearly identical to the last processed
+ * one reuse its result and overlay instead of running the chain; they do not vote, since
+ * they add no new observation.
+ * Rendering is separate from the analysis: with live view off (setLiveView) or the viewport
+ * paused, the input frame is returned untouched; snapshots are drawn from the input on request.
+ * processMaskStage() and processAnalysisStage() split processFrame() in two halves that can
+ * run on different threads, see PipelinedPropPipeline.
+ *
+ * All working Mats come from a MatArena created in init(), so every doLink* stage
+ * writes into the same buffers frame after frame.
+ */
+public class PropPipeline extends TimestampedOpenCvPipeline implements DetectionSource {
+
+    public enum CropMode {
+        BLANK,  // copy the full frame and black out everything outside the ROI
+        ROI     // process a submat view of the ROI only
+    }
+
+    public enum MaskBackend {
+        HSV,     // cvtColor to HSV, then inRange (or one pass for several bands)
+        RGB_LUT, // quantized RGB lookup table, no color conversion
+        CHROMA   // cvtColor to YCrCb, then one inRange on the profile's chroma channel (and luma)
+    }
+
+    public enum MaskCleanup {
+        NONE,   // use the mask as thresholded
+        OPEN,   // erode then dilate: drop specks smaller than 3x3
+        CLOSE   // dilate then erode: fill holes smaller than 3x3
+    }
+
+    public enum ClassifyBackend {
+        SHAPES,  // find, filter and size the two spike mark shapes
+        REGIONS  // vote over fixed spike mark zones of the mask, see SpikeRegionSampler
+    }
+
+    private final String TAG = this.getClass().getSimpleName();
+    private final PipelineEventLog eventLog = new PipelineEventLog(TAG);
+    private long frameIndex = 0;
+    private Mat displayMat = new Mat(); // Image Mat to be displayed on screen
+    public  Mat fileMat    = new Mat(); // Image Mat to hold image to write to a file
+
+    // per-frame result, only touched by the frame worker; published through result
+    private int foundPropHere = 0;
+    private final Point leftPoint   = new Point();
+    private final Point centerPoint = new Point();
+    private Scalar leftColor;
+    private Scalar centerColor;
+    private final AtomicReference<DetectionResult> result = new AtomicReference<>(DetectionResult.NONE);
+
+    /** Suggested change gate threshold, in levels of the most changed scene thumbnail pixel. */
+    public static final double DEFAULT_CHANGE_GATE = 12.0;
+    /** Longest run of gated frames before one is processed regardless. */
+    public static final int MAX_GATED_FRAMES = 30;
+
+    private static final Scalar BLANK       = new Scalar(0, 0, 0);
+    private static final Scalar SPIKE_COLOR = new Scalar(255.0, 255.0, 0.0);
+    private static final Scalar PROP_COLOR  = new Scalar(0.0, 255.0, 0.0);
+
+    private final PropProfile profile;
+    private final HsvBand[] bands;
+    private final Scalar lowerb;    // bounds of the first band, for the single-band inRange path
+    private final Scalar upperb;
+    private final Scalar chromaLowerb;  // YCrCb bounds for MaskBackend.CHROMA
+    private final Scalar chromaUpperb;
+    private volatile CropMode cropMode = CropMode.ROI;
+    private volatile MaskBackend maskBackend = MaskBackend.HSV;
+    private RgbLutClassifier lutClassifier;  // built on first use of MaskBackend.RGB_LUT
+    private volatile int pyramidScale = 1;
+    private CoarseToFine coarseToFine;       // null unless pyramidScale > 1
+    private volatile int maskThreads = 1;
+    private RowBands rowBands;               // null unless maskThreads > 1
+    private volatile MaskCleanup maskCleanup = MaskCleanup.NONE;
+    private BitMask bitMask;                 // sized to mskMat on first use of a cleanup
+    private final RgbLutClassifier[] bandClassifiers = new RgbLutClassifier[RowBands.MAX_THREADS];
+    private final RowBands.BandTask bandMask = new RowBands.BandTask() {
+        @Override
+        public void run(int band, Mat src, Mat hsv, Mat msk) {
+            doMask(src, hsv, msk, band);
+        }
+    };
+    private volatile ShapeBackend shapeBackend = ShapeBackend.CONTOURS;
+    private final BlobExtractor blobExtractor = new BlobExtractor();
+    private final RunLengthMask runMask = new RunLengthMask();
+    private volatile ClassifyBackend classifyBackend = ClassifyBackend.SHAPES;
+    private final SpikeRegionSampler regionSampler;
+    private final StageLatencies stageLatencies = new StageLatencies();
+    private final PropVoter voter = new PropVoter();
+    private volatile MatchRecorder recorder;
+    private volatile double changeGate = 0;  // 0 turns the change gate off
+    private final SceneChangeDetector changeDetector = new SceneChangeDetector();
+    private int gatedRun = 0;
+    private volatile long gatedCount = 0;
+    private SnapshotWriter snapshotWriter;  // pending snapshot request, guarded by this
+    private File snapshotFile;
+    private volatile boolean liveView = true;
+    private volatile boolean viewportPaused = false;
+    private boolean maskedImageReady = false;  // doChain composed the masked image this frame
+    private Mat chainCropMat;                  // cropped image of the last doChain
+
+    // Buffer arena, (re)built whenever the frame size, type or crop mode changes
+    private final MatArena arena = new MatArena();
+    private int bufRows = -1;
+    private int bufCols = -1;
+    private int bufType = -1;
+    private CropMode bufCropMode = null;
+    private final Rect roi = new Rect();
+    private final Point roiOffset = new Point();  // findContours offset back to full-frame coordinates
+    private final Point maskOffset = new Point(); // the same for processAnalysisStage's mask
+    private Mat roiMat;       // ROI view into the current input frame, in CropMode.ROI
+    private Mat roiParent;    // input frame roiMat was taken from
+    private long roiParentAddr;
+    private Mat cropMat;      // output of doLinkCropImage, in CropMode.BLANK
+    private Mat leftMat;      // blanking views into cropMat, null when not needed
+    private Mat rightMat;
+    private Mat topMat;
+    private Mat bottomMat;
+    private Mat hsvMat;       // HSV (or YCrCb) conversion of the cropped image
+    private Mat coarseHsvMat; // HSV conversion of the shrunk image, in coarse-to-fine mode
+    private Mat mskMat;       // prop color mask
+    private Mat maskedMat;    // full-frame masked image, shown on the display
+    private Mat inRangeMat;   // output of doLinkInRange, maskedMat or its ROI view
+    private Mat grayMat;      // gray image for findContours
+    private Mat hierarchy;    // findContours hierarchy output
+    // HSV and mask pixels for the multi-band single pass, one pair per mask band
+    private final byte[][] hsvBytes = new byte[RowBands.MAX_THREADS][];
+    private final byte[][] mskBytes = new byte[RowBands.MAX_THREADS][];
+    private final List<MatOfPoint> contours = new ArrayList<>();
+    private final ContourFeatures features = new ContourFeatures();
+
+    public PropPipeline(PropProfile profile) {
+        this.profile = profile;
+        this.bands = profile.bands.toArray(new HsvBand[0]);
+        this.lowerb = bands[0].lower();
+        this.upperb = bands[0].upper();
+        this.chromaLowerb = new Scalar(profile.lumaMin,
+                (profile.chromaChannel == PropProfile.CR) ? profile.chromaMin : 0,
+                (profile.chromaChannel == PropProfile.CB) ? profile.chromaMin : 0);
+        this.chromaUpperb = new Scalar(profile.lumaMax, 255, 255);
+        this.regionSampler = new SpikeRegionSampler(profile);
+    }
+
+    public PropProfile getProfile() {
+        return profile;
+    }
+
+    public CropMode getCropMode() {
+        return cropMode;
+    }
+
+    /**
+     * Switch crop mode; buffers are rebuilt at the start of the next frame.
+     */
+    public void setCropMode(CropMode cropMode) {
+        this.cropMode = cropMode;
+    }
+
+    public MaskBackend getMaskBackend() {
+        return maskBackend;
+    }
+
+    /**
+     * Switch mask backend, effective from the next frame.
+     */
+    public void setMaskBackend(MaskBackend maskBackend) {
+        this.maskBackend = maskBackend;
+    }
+
+    public int getPyramidScale() {
+        return pyramidScale;
+    }
+
+    /**
+     * Coarse-to-fine masking: 1 masks every pixel; 2 or 4 masks a shrunk image first and
+     * then only the regions around its blobs at full resolution. Effective from the next frame.
+     */
+    public void setPyramidScale(int pyramidScale) {
+        if ((pyramidScale != 1) && (pyramidScale != 2) && (pyramidScale != 4)) {
+            throw new IllegalArgumentException("pyramidScale must be 1, 2 or 4, was " + pyramidScale);
+        }
+        this.pyramidScale = pyramidScale;
+    }
+
+    public int getMaskThreads() {
+        return maskThreads;
+    }
+
+    /**
+     * Threads masking horizontal bands of the image in parallel; 1 (the default) masks on the
+     * frame worker alone. Coarse-to-fine masking stays serial. Effective from the next frame.
+     */
+    public void setMaskThreads(int maskThreads) {
+        if ((maskThreads < 1) || (maskThreads > RowBands.MAX_THREADS)) {
+            throw new IllegalArgumentException("maskThreads must be 1.." + RowBands.MAX_THREADS + ", was " + maskThreads);
+        }
+        this.maskThreads = maskThreads;
+    }
+
+    public MaskCleanup getMaskCleanup() {
+        return maskCleanup;
+    }
+
+    /**
+     * Clean the color mask up with 3x3 morphology before shapes or regions are read from it.
+     * Effective from the next frame.
+     */
+    public void setMaskCleanup(MaskCleanup maskCleanup) {
+        this.maskCleanup = maskCleanup;
+    }
+
+    public ShapeBackend getShapeBackend() {
+        return shapeBackend;
+    }
+
+    /**
+     * Switch shape backend, effective from the next frame.
+     */
+    public void setShapeBackend(ShapeBackend shapeBackend) {
+        this.shapeBackend = shapeBackend;
+    }
+
+    /**
+     * Runs of the last mask, with ShapeBackend.RUNS; e.g. to store the mask compactly
+     * with RunLengthMask.writeTo(). Only valid on the frame thread until the next frame.
+     */
+    public RunLengthMask getRunMask() {
+        return runMask;
+    }
+
+    public ClassifyBackend getClassifyBackend() {
+        return classifyBackend;
+    }
+
+    /**
+     * Switch classify backend, effective from the next frame. The shape backend only
+     * matters for ClassifyBackend.SHAPES.
+     */
+    public void setClassifyBackend(ClassifyBackend classifyBackend) {
+        this.classifyBackend = classifyBackend;
+    }
+
+    public SpikeRegionSampler getRegionSampler() {
+        return regionSampler;
+    }
+
+    public double getChangeGate() {
+        return changeGate;
+    }
+
+    /**
+     * Frame-change gate: a frame whose scene thumbnail differs from the last processed frame
+     * by at most threshold levels (see SceneChangeDetector) reuses the last result and
+     * overlay instead of running the chain. 0 (the default) processes every frame.
+     * Effective from the next frame.
+     */
+    public void setChangeGate(double threshold) {
+        this.changeGate = threshold;
+    }
+
+    /**
+     * Frames that reused the last result because of the change gate.
+     */
+    public long getGatedCount() {
+        return gatedCount;
+    }
+
+    /**
+     * Per-frame event log; start() it from the OpMode to drain it to logcat.
+     */
+    public PipelineEventLog getEventLog() {
+        return eventLog;
+    }
+
+    /**
+     * Latency histograms for each stage of doChain, and for the whole frame.
+     */
+    public StageLatencies getStageLatencies() {
+        return stageLatencies;
+    }
+
+    /**
+     * Result of the most recently processed frame; DetectionResult.NONE before the first.
+     * Safe to call from any thread.
+     */
+    @Override
+    public DetectionResult getResult() {
+        return result.get();
+    }
+
+    /**
+     * Multi-frame decision over the per-frame results; reset() it when the decision should start.
+     */
+    public PropVoter getVoter() {
+        return voter;
+    }
+
+    /**
+     * Record every processed frame and its result into a match ring file; null to stop.
+     */
+    public void setRecorder(MatchRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    public boolean isLiveView() {
+        return liveView;
+    }
+
+    /**
+     * Whether someone watches the viewport. Off, processFrame() returns the input untouched
+     * and skips composing the masked image unless the contour search needs it anyway.
+     * Snapshots are drawn from the input either way. Effective from the next frame.
+     */
+    public void setLiveView(boolean liveView) {
+        this.liveView = liveView;
+    }
+
+    /**
+     * Tapping the viewport pauses the overlay, and tapping again resumes it.
+     */
+    @Override
+    public void onViewportTapped() {
+        viewportPaused = !viewportPaused;
+    }
+
+    private boolean isRenderNeeded() {
+        return liveView && !viewportPaused;
+    }
+
+    /**
+     * Have the frame worker submit the next processed frame, with the left and center spike
+     * mark circles drawn in, to writer as file. Safe to call while the camera is streaming.
+     */
+    public synchronized void requestSnapshot(SnapshotWriter writer, File file) {
+        this.snapshotWriter = writer;
+        this.snapshotFile = file;
+    }
+
+    private void writeRequestedSnapshot(Mat input) {
+        SnapshotWriter writer;
+        File file;
+        synchronized (this) {
+            writer = snapshotWriter;
+            file = snapshotFile;
+            snapshotWriter = null;
+            snapshotFile = null;
+        }
+        if (writer == null) {
+            return;
+        }
+        Imgproc.cvtColor(input, fileMat, Imgproc.COLOR_BGR2RGB);
+        if (leftColor != null) {
+            Imgproc.circle(
+                    fileMat,          // Mat img - input/output image
+                    leftPoint,        // Point center
+                    3,                // int radius
+                    leftColor,        // Scalar color
+                    3                 // int thickness
+            );
+            Imgproc.circle(
+                    fileMat,          // Mat img - input/output image
+                    centerPoint,      // Point center
+                    3,                // int radius
+                    centerColor,      // Scalar color
+                    3                 // int thickness
+            );
+        }
+        writer.submit(fileMat, file);
+    }
+
+    /**
+     * Number of Mats currently held by this pipeline's buffer arena, including the last
+     * frame's contours.
+     */
+    public int getLiveMatCount() {
+        return arena.liveMatCount();
+    }
+
+    /**
+     * Number of arena Mats allocated while processing the last frame; 0 in steady state.
+     */
+    public int getMatAllocationsLastFrame() {
+        return arena.allocationsThisFrame();
+    }
+
+    private void allocateBuffers(Mat frame) {
+        int rows = frame.rows();
+        int cols = frame.cols();
+        CropMode mode = cropMode;
+        arena.release();
+        releaseRoiView();
+        if (coarseToFine != null) {
+            coarseToFine.releaseViews();
+        }
+        roi.x = Math.max(0, Math.min(profile.cropLeft, cols));
+        roi.y = Math.max(0, Math.min(profile.cropTop, rows));
+        roi.width  = Math.max(0, Math.min(profile.cropRight, cols) - roi.x);
+        roi.height = Math.max(0, Math.min(profile.cropBottom, rows) - roi.y);
+        maskedMat = arena.alloc(rows, cols, frame.type());
+        if (mode == CropMode.ROI) {
+            roiOffset.x = roi.x;
+            roiOffset.y = roi.y;
+            cropMat    = null;
+            leftMat    = null;
+            rightMat   = null;
+            topMat     = null;
+            bottomMat  = null;
+            inRangeMat = arena.submat(maskedMat, roi);
+            rows = roi.height;
+            cols = roi.width;
+        } else {
+            roiOffset.x = 0;
+            roiOffset.y = 0;
+            cropMat    = arena.alloc(rows, cols, frame.type());
+            // blank everything outside the clamped ROI, the same pixels CropMode.ROI leaves out
+            int roiRight  = roi.x + roi.width;
+            int roiBottom = roi.y + roi.height;
+            leftMat   = (roi.x > 0)        ? arena.submat(cropMat, new Rect(0, 0, roi.x, rows)) : null;
+            rightMat  = (roiRight < cols)  ? arena.submat(cropMat, new Rect(roiRight, 0, cols-roiRight, rows)) : null;
+            topMat    = (roi.y > 0)        ? arena.submat(cropMat, new Rect(0, 0, cols, roi.y)) : null;
+            bottomMat = (roiBottom < rows) ? arena.submat(cropMat, new Rect(0, roiBottom, cols, rows-roiBottom)) : null;
+            inRangeMat = maskedMat;
+        }
+        hsvMat     = arena.alloc(rows, cols, CvType.CV_8UC3);
+        coarseHsvMat = arena.alloc();
+        mskMat     = arena.alloc(rows, cols, CvType.CV_8U);
+        grayMat    = arena.alloc();
+        hierarchy  = arena.alloc();
+        if (bands.length > 1) {
+            hsvBytes[0] = new byte[rows * cols * 3];
+            mskBytes[0] = new byte[rows * cols];
+        }
+        bufRows = frame.rows();
+        bufCols = frame.cols();
+        bufType = frame.type();
+        bufCropMode = mode;
+    }
+
+    private void ensureBuffers(Mat frame) {
+        if ((frame.rows() != bufRows) || (frame.cols() != bufCols) || (frame.type() != bufType) ||
+                (cropMode != bufCropMode)) {
+            allocateBuffers(frame);
+        }
+    }
+
+    private void releaseRoiView() {
+        if (roiMat != null) {
+            roiMat.release();
+        }
+        roiMat = null;
+        roiParent = null;
+        roiParentAddr = 0;
+    }
+
+    public Mat doLinkCropImage(Mat matImgSrc) {
+        if (bufCropMode == CropMode.ROI) {
+            // EasyOpenCV normally hands us the same input Mat every frame,
+            // so the ROI view only has to be rebuilt when that changes
+            if ((matImgSrc != roiParent) || (matImgSrc.dataAddr() != roiParentAddr)) {
+                releaseRoiView();
+                roiMat = matImgSrc.submat(roi);
+                roiParent = matImgSrc;
+                roiParentAddr = matImgSrc.dataAddr();
+            }
+            return roiMat;
+        }
+        matImgSrc.copyTo(cropMat);
+        if (leftMat   != null) leftMat.setTo(BLANK);
+        if (rightMat  != null) rightMat.setTo(BLANK);
+        if (topMat    != null) topMat.setTo(BLANK);
+        if (bottomMat != null) bottomMat.setTo(BLANK);
+        return cropMat;
+    }
+    public Mat doLinkInRange(Mat matImgSrc) {
+        doLinkMask(matImgSrc);
+        return doLinkMaskedImage(matImgSrc);
+    }
+    /**
+     * Binary prop color mask of the cropped image, without the masked image.
+     */
+    public Mat doLinkMask(Mat matImgSrc) {
+        if (coarseToFine != null) {
+            doMaskCoarseToFine(matImgSrc, coarseToFine);
+        } else if (rowBands != null) {
+            // each band writes its rows of mskMat, so there is nothing to merge
+            rowBands.run(matImgSrc, hsvMat, mskMat, bandMask);
+        } else {
+            doMask(matImgSrc, hsvMat, mskMat);
+        }
+        MaskCleanup cleanup = maskCleanup;
+        if (cleanup != MaskCleanup.NONE) {
+            doMaskCleanup(cleanup);
+        }
+        return mskMat;
+    }
+    private void doMaskCleanup(MaskCleanup cleanup) {
+        if ((bitMask == null) || (bitMask.cols() != mskMat.cols()) || (bitMask.rows() != mskMat.rows())) {
+            bitMask = new BitMask(mskMat.cols(), mskMat.rows());
+        }
+        bitMask.fromMat(mskMat);
+        if (cleanup == MaskCleanup.OPEN) {
+            bitMask.open(1);
+        } else {
+            bitMask.close(1);
+        }
+        bitMask.toMat(mskMat);
+    }
+    /**
+     * Masked image shown on the display: the cropped image's pixels under the mask left by
+     * doLinkMask, black elsewhere. findContours works on it; blobs only need the mask.
+     */
+    public Mat doLinkMaskedImage(Mat matImgSrc) {
+        // Clear output Mat to all zeros
+        inRangeMat.setTo(BLANK);
+        // Copy matImgSrc pixels to inRangeMat, filtered by msk
+        Core.copyTo(
+                matImgSrc,  // Mat - source Mat
+                inRangeMat, // Mat - destination Mat
+                mskMat      // Mat - masking Mat
+        );
+        maskedImageReady = true;
+        return inRangeMat;
+    }
+    private void doMask(Mat src, Mat hsv, Mat msk) {
+        doMask(src, hsv, msk, 0);
+    }
+    /**
+     * Mask src into msk with the current mask backend; hsv is scratch of the same size.
+     * All three may be views of a region of larger Mats. rowBand selects the scratch buffers
+     * and classifier, so different row bands can be masked on different threads.
+     */
+    private void doMask(Mat src, Mat hsv, Mat msk, int rowBand) {
+        if (maskBackend == MaskBackend.RGB_LUT) {
+            // One table lookup per pixel writes the mask directly
+            ((rowBand == 0) ? lutClassifier : bandClassifiers[rowBand]).classify(src, msk);
+            return;
+        }
+        if (maskBackend == MaskBackend.CHROMA) {
+            // A linear conversion, then one range test on luma and the prop's chroma channel
+            Imgproc.cvtColor(
+                    src,                     // Mat - source
+                    hsv,                     // Mat - destination, YCrCb here
+                    Imgproc.COLOR_RGB2YCrCb  // int - code space conversion code
+            );
+            Core.inRange(hsv, chromaLowerb, chromaUpperb, msk);
+            return;
+        }
+        // If the source image was a file then the Mat is BGR (as this code assumes)
+        // BUT if the source image was a camera then the Mat is likely RGB, so instead use COLOR_RGB2HSV
+        // Convert source Mat in BGR color space to HSV color space
+        Imgproc.cvtColor(
+                src,                   // Mat - source
+                hsv,                   // Mat - destination
+                Imgproc.COLOR_RGB2HSV  // int - code space conversion code
+        );
+        if (bands.length == 1) {
+            // Create masking Mat msk of all pixels within Scalar boundaries
+            Core.inRange(
+                    hsv,       // Mat    - input Mat
+                    lowerb,    // Scalar - inclusive lower boundary scalar
+                    upperb,    // Scalar - inclusive upper boundary scalar
+                    msk        // Mat    - output Mat, same size as src, and of CV_8U type
+            );
+        } else {
+            // Several bands (red wraps around hue 0/180): test all of them in one pass
+            // instead of one inRange per band plus bitwise_or of the full-size masks
+            doMaskBands(hsv, msk, rowBand);
+        }
+    }
+    /**
+     * Mask a shrunk copy of src, then mask at full resolution only the regions around
+     * the blobs found in it; everything else in mskMat stays 0.
+     */
+    private void doMaskCoarseToFine(Mat src, CoarseToFine pyramid) {
+        Mat coarse = pyramid.downscale(src);
+        doMask(coarse, coarseHsvMat, pyramid.getCoarseMask());
+        int candidates = pyramid.findCandidates(profile.minArea, src.cols(), src.rows());
+        mskMat.setTo(BLANK);
+        for (int i = 0; i < candidates; i++) {
+            doMask(pyramid.candidateView(i, 0, src),
+                    pyramid.candidateView(i, 1, hsvMat),
+                    pyramid.candidateView(i, 2, mskMat));
+        }
+    }
+    private void doMaskBands(Mat hsv, Mat msk, int rowBand) {
+        int pixels = msk.rows() * msk.cols();
+        if ((mskBytes[rowBand] == null) || (mskBytes[rowBand].length < pixels)) {
+            hsvBytes[rowBand] = new byte[pixels * 3];
+            mskBytes[rowBand] = new byte[pixels];
+        }
+        byte[] hsvBytes = this.hsvBytes[rowBand];
+        byte[] mskBytes = this.mskBytes[rowBand];
+        hsv.get(0, 0, hsvBytes);
+        for (int p = 0, i = 0; p < pixels; p++, i += 3) {
+            int h = hsvBytes[i]   & 0xFF;
+            int s = hsvBytes[i+1] & 0xFF;
+            int v = hsvBytes[i+2] & 0xFF;
+            byte m = 0;
+            for (HsvBand band : bands) {
+                if (band.contains(h, s, v)) {
+                    m = (byte) 255;
+                    break;
+                }
+            }
+            mskBytes[p] = m;
+        }
+        msk.put(0, 0, mskBytes);
+    }
+    /**
+     * Note that findContours itself still creates one MatOfPoint per contour found;
+     * the previous frame's contours are released here so they do not pile up, and the
+     * arena counts the live ones (see MatArena.setFrameMats()).
+     */
+    public List<MatOfPoint> doLinkFindContours(Mat matImgSrc) {
+        // Convert source Mat in BGR color space to Gray color space
+        Imgproc.cvtColor(
+                matImgSrc,              // Mat - source
+                grayMat,                // Mat - destination
+                Imgproc.COLOR_RGB2GRAY  // int - code space conversion code
+        );
+        return findContours(grayMat, roiOffset);
+    }
+    private List<MatOfPoint> findContours(Mat binary, Point offset) {
+        for (MatOfPoint contour : contours) {
+            contour.release();
+        }
+        contours.clear();
+        Imgproc.findContours(
+                binary,       // Mat - input image
+                contours,     // List of MatOfPoints - output List of contours
+                hierarchy,    // Mat - output hierarchy Mat
+                Imgproc.RETR_TREE,    // int - contour retrieval mode
+                Imgproc.CHAIN_APPROX_SIMPLE,   // int - contour approximation method
+                offset        // Point - offset added to every contour point
+        );
+        arena.setFrameMats(contours.size());
+        return contours;
+    }
+    /**
+     * Blob alternative to doLinkFindContours: shape features of every blob in the binary
+     * mask left by doLinkInRange, in full-frame coordinates.
+     */
+    public ContourFeatures doLinkFindBlobs() {
+        blobExtractor.extract(mskMat, features, (int) roiOffset.x, (int) roiOffset.y);
+        return features;
+    }
+    /**
+     * Run-length alternative to doLinkFindBlobs: encode the binary mask into getRunMask()
+     * and label the blobs from its runs.
+     */
+    public ContourFeatures doLinkFindRuns() {
+        runMask.extract(mskMat, features, (int) roiOffset.x, (int) roiOffset.y);
+        return features;
+    }
+    /**
+     * Compute the shape features of every contour once, then filter them.
+     */
+    public ContourFeatures doLinkFilterContours(List<MatOfPoint> contours) {
+        features.compute(contours);
+        return doLinkFilterFeatures(features);
+    }
+    /**
+     * Keep the indices of the shapes within the profile's area and perimeter limits
+     * as the filtered subset.
+     */
+    public ContourFeatures doLinkFilterFeatures(ContourFeatures features) {
+        double area;
+        double perimeter;
+        features.clearFiltered();
+        for (int i = 0; i < features.count(); i++) {
+            area = features.area(i);
+            perimeter = features.perimeter(i);
+            // only add contours within desired area and perimeter to list of filtered contours
+            if (( area > profile.minArea ) &&
+                    (area < profile.maxArea) &&
+                    ( perimeter > profile.minPerimeter) &&
+                    (perimeter < profile.maxPerimeter)) {
+                features.addFiltered(i);
+            }
+        }
+        return features;
+    }
+    public int doLinkCenterStageProp(ContourFeatures features) {
+        int leftIdx = -1;
+        int centerIdx = -1;
+        int propIndex = 0;
+        boolean leftIsProp = false;
+        boolean leftIsSpike = false;
+        boolean centerIsProp = false;
+        boolean centerIsSpike = false;
+        int area;
+        if (features.filteredCount() != 2) {
+            return propIndex;
+        }
+        int first  = features.filtered(0);
+        int second = features.filtered(1);
+        if (features.circleX(first) < features.circleX(second)) {
+            leftIdx = first;
+            centerIdx = second;
+        } else {
+            leftIdx = second;
+            centerIdx = first;
+        }
+        area = (int) features.area(leftIdx);
+        leftIsSpike = ((area >= profile.spikeMin) && (area <= profile.spikeMax));
+        leftIsProp  = ((area >= profile.propMin) && (area <= profile.propMax));
+        area = (int) features.area(centerIdx);
+        centerIsSpike = ((area >= profile.spikeMin) && (area <= profile.spikeMax));
+        centerIsProp  = ((area >= profile.propMin) && (area <= profile.propMax));
+        if (leftIsSpike && centerIsSpike) {
+            propIndex = 3;
+        } else if (leftIsProp && centerIsSpike) {
+            propIndex = 1;
+        } else if (leftIsSpike && centerIsProp) {
+            propIndex = 2;
+        }
+        // not JULIP :)-----------------
+        if (propIndex > 0) {
+            leftPoint.x   = features.circleX(leftIdx);
+            leftPoint.y   = features.circleY(leftIdx);
+            centerPoint.x = features.circleX(centerIdx);
+            centerPoint.y = features.circleY(centerIdx);
+        }
+        if (leftIsSpike) {
+            leftColor = SPIKE_COLOR;
+        } else {
+            leftColor = PROP_COLOR;
+        }
+        if (centerIsSpike) {
+            centerColor = SPIKE_COLOR;
+        } else {
+            centerColor = PROP_COLOR;
+        }
+        //----------------------------------
+        return propIndex;
+    }
+    /**
+     * Region alternative to shapes: position from the spike mark zones of the binary mask
+     * left by doLinkMask. The circles mark the nominal zone centers.
+     */
+    public int doLinkSampleRegions() {
+        return sampleRegions(mskMat, (int) roiOffset.x, (int) roiOffset.y);
+    }
+    private int sampleRegions(Mat mask, int offsetX, int offsetY) {
+        int propIndex = regionSampler.sample(mask, offsetX, offsetY);
+        leftPoint.x   = profile.leftSpikeX;
+        leftPoint.y   = profile.leftSpikeY;
+        centerPoint.x = profile.centerSpikeX;
+        centerPoint.y = profile.centerSpikeY;
+        leftColor   = (propIndex == 1) ? PROP_COLOR : SPIKE_COLOR;
+        centerColor = (propIndex == 2) ? PROP_COLOR : SPIKE_COLOR;
+        return propIndex;
+    }
+    public int doChain(Mat matImgSrc) {
+        stageLatencies.start();
+        maskedImageReady = false;
+        Mat cropImageMat = doLinkCropImage(matImgSrc);
+        chainCropMat = cropImageMat;
+        stageLatencies.lap(PipelineStage.CROP);
+        ContourFeatures filteredFeatures;
+        if (classifyBackend == ClassifyBackend.REGIONS) {
+            // no shapes: the masked image is only composed if the overlay is rendered
+            doLinkMask(cropImageMat);
+            stageLatencies.lap(PipelineStage.MASK);
+            int centerStageProp = doLinkSampleRegions();
+            stageLatencies.lap(PipelineStage.CLASSIFY);
+            return centerStageProp;
+        }
+        if (shapeBackend != ShapeBackend.CONTOURS) {
+            // the masked image is only composed if the overlay is rendered
+            doLinkMask(cropImageMat);
+            stageLatencies.lap(PipelineStage.MASK);
+            ContourFeatures blobFeatures = (shapeBackend == ShapeBackend.RUNS)
+                    ? doLinkFindRuns() : doLinkFindBlobs();
+            stageLatencies.lap(PipelineStage.CONTOURS);
+            filteredFeatures = doLinkFilterFeatures(blobFeatures);
+        } else {
+            Mat inRangeImageMat = doLinkInRange(cropImageMat);
+            stageLatencies.lap(PipelineStage.MASK);
+            List<MatOfPoint> findContoursList = doLinkFindContours(inRangeImageMat);
+            stageLatencies.lap(PipelineStage.CONTOURS);
+            filteredFeatures = doLinkFilterContours(findContoursList);
+        }
+        stageLatencies.lap(PipelineStage.FILTER);
+        int centerStageProp = doLinkCenterStageProp(filteredFeatures);
+        stageLatencies.lap(PipelineStage.CLASSIFY);
+        return centerStageProp;
+    }
+
+
+    /**
+     * True if this frame may reuse the last result and overlay: the change gate is on, the
+     * frame is close enough to the last processed one, no buffers were rebuilt for it, and
+     * fewer than MAX_GATED_FRAMES frames in a row have been gated.
+     */
+    private boolean isGated(Mat input) {
+        double threshold = changeGate;
+        if (threshold <= 0) {
+            changeDetector.reset();
+            gatedRun = 0;
+            return false;
+        }
+        double change = changeDetector.score(input);
+        if ((change <= threshold) && (arena.allocationsThisFrame() == 0) && (gatedRun < MAX_GATED_FRAMES)) {
+            gatedRun++;
+            gatedCount++;
+            return true;
+        }
+        changeDetector.accept();
+        gatedRun = 0;
+        return false;
+    }
+
+    /**
+     * Method declared in OpenCVAgent
+     * Called once with the first frame; size the buffer arena from it.
+     */
+    @Override
+    public void init(Mat firstFrame) {
+        allocateBuffers(firstFrame);
+        ensureClassifier();
+        ensureCoarseToFine();
+        ensureRowBands();
+    }
+
+    /**
+     * Shut down the mask threads and free the native buffers, once the camera has stopped
+     * streaming to this pipeline. A later frame sets everything up again.
+     */
+    public void release() {
+        if (rowBands != null) {
+            rowBands.release();
+            rowBands = null;
+        }
+        if (coarseToFine != null) {
+            coarseToFine.release();
+            coarseToFine = null;
+        }
+        for (MatOfPoint contour : contours) {
+            contour.release();
+        }
+        contours.clear();
+        arena.setFrameMats(0);
+        releaseRoiView();
+        arena.release();
+        hierarchy = null;
+        bufRows = -1;
+        blobExtractor.release();
+        regionSampler.release();
+        changeDetector.release();
+        changeDetector.reset();
+    }
+
+    private void ensureCoarseToFine() {
+        int scale = pyramidScale;
+        if ((coarseToFine != null) && (coarseToFine.getScale() != scale)) {
+            coarseToFine.release();
+            coarseToFine = null;
+        }
+        if ((coarseToFine == null) && (scale > 1)) {
+            coarseToFine = new CoarseToFine(scale);
+        }
+    }
+    private void ensureRowBands() {
+        int threads = maskThreads;
+        if ((rowBands != null) && (rowBands.getThreads() != threads)) {
+            rowBands.release();
+            rowBands = null;
+        }
+        if ((rowBands == null) && (threads > 1)) {
+            rowBands = new RowBands(threads);
+        }
+        if (lutClassifier != null) {
+            for (int band = 1; band < threads; band++) {
+                if (bandClassifiers[band] == null) {
+                    bandClassifiers[band] = lutClassifier.share();
+                }
+            }
+        }
+    }
+    private void ensureClassifier() {
+        if ((maskBackend == MaskBackend.RGB_LUT) && (lutClassifier == null)) {
+            lutClassifier = new RgbLutClassifier(profile.bands);
+        }
+    }
+
+    /**
+     * Method declared in OpenCVAgent
+     * Put all code to process camera frames into this method.
+     */
+    @Override
+    public Mat processFrame(Mat input, long captureTimeNanos) {
+
+        long startNs = System.nanoTime();
+        arena.beginFrame();
+        ensureBuffers(input);
+        ensureClassifier();
+        ensureCoarseToFine();
+        ensureRowBands();
+
+        boolean gated = isGated(input);
+        boolean render = isRenderNeeded();
+        if (!gated) {
+            foundPropHere = doChain(input);
+            if (render && !maskedImageReady) {
+                doLinkMaskedImage(chainCropMat);
+            }
+            stageLatencies.lap(PipelineStage.RENDER);
+            stageLatencies.finish();
+        }
+        // without a viewer or snapshot the frame goes back untouched
+        displayMat = render ? maskedMat : input;
+        // gated frames are logged without stage times
+        publish(captureTimeNanos, startNs, gated, stageLatencies);
+        MatchRecorder matchRecorder = recorder;
+        if (matchRecorder != null) {
+            matchRecorder.record(input, captureTimeNanos, foundPropHere);
+        }
+        writeRequestedSnapshot(input);
+        logAllocations();
+
+        return displayMat;
+
+    }
+
+    /**
+     * Vote, publish and log foundPropHere as the result of the frame captured at
+     * captureTimeNanos, whose processing started at startNs. A gated frame only repeats the
+     * last result, so it is published and logged (without stage times) but does not vote.
+     */
+    private void publish(long captureTimeNanos, long startNs, boolean gated, StageLatencies latencies) {
+        long endNs = System.nanoTime();
+        if (!gated) {
+            voter.vote(foundPropHere, endNs);
+        }
+        result.set(DetectionResult.prop(frameIndex, captureTimeNanos, endNs, foundPropHere,
+                leftPoint, centerPoint, leftColor, centerColor));
+        eventLog.record(frameIndex++, startNs, endNs, foundPropHere, gated ? null : latencies);
+    }
+
+    private void logAllocations() {
+        if (arena.allocationsThisFrame() > 0) {
+            Log.d(TAG, "buffer arena allocated " + arena.allocationsThisFrame()
+                    + " Mats this frame, " + arena.liveMatCount() + " live ("
+                    + arena.frameMatCount() + " contours)");
+        }
+        CoarseToFine pyramid = coarseToFine;
+        if ((pyramid != null) && (pyramid.getViewsCreated() > 0)) {
+            Log.d(TAG, "coarse-to-fine created " + pyramid.getViewsCreated() + " candidate views this frame");
+        }
+        RowBands maskBands = rowBands;
+        if ((maskBands != null) && (maskBands.getViewsCreated() > 0)) {
+            Log.d(TAG, "mask row bands created " + maskBands.getViewsCreated() + " band views this frame");
+        }
+    }
+
+    /**
+     * First half of processFrame(): crop and mask input, copy the binary mask into mask and
+     * return the frame to display. The mask's top left pixel is (getMaskOffsetX(),
+     * getMaskOffsetY()) of the frame. Stage latencies cover CROP, MASK and RENDER.
+     * Nothing is voted or published; hand mask to processAnalysisStage().
+     */
+    public Mat processMaskStage(Mat input, Mat mask) {
+        arena.beginFrame();
+        ensureBuffers(input);
+        ensureClassifier();
+        ensureCoarseToFine();
+        ensureRowBands();
+        stageLatencies.start();
+        maskedImageReady = false;
+        Mat cropImageMat = doLinkCropImage(input);
+        stageLatencies.lap(PipelineStage.CROP);
+        doLinkMask(cropImageMat).copyTo(mask);
+        stageLatencies.lap(PipelineStage.MASK);
+        boolean render = isRenderNeeded();
+        if (render) {
+            doLinkMaskedImage(cropImageMat);
+        }
+        stageLatencies.lap(PipelineStage.RENDER);
+        stageLatencies.finish();
+        logAllocations();
+        return render ? maskedMat : input;
+    }
+
+    public int getMaskOffsetX() {
+        return (int) roiOffset.x;
+    }
+
+    public int getMaskOffsetY() {
+        return (int) roiOffset.y;
+    }
+
+    /**
+     * Second half of processFrame(): shapes (or regions) of a mask from processMaskStage()
+     * of a pipeline with the same profile, classified, voted and published as the result of
+     * the frame captured at captureTimeNanos, whose first half started at startNs. Contours
+     * are traced on the mask itself rather than on the masked image. Stage latencies cover
+     * CONTOURS, FILTER and CLASSIFY. Runs on any one thread, but not alongside processFrame().
+     */
+    public int processAnalysisStage(Mat mask, int offsetX, int offsetY, long captureTimeNanos, long startNs) {
+        stageLatencies.start();
+        if (classifyBackend == ClassifyBackend.REGIONS) {
+            foundPropHere = sampleRegions(mask, offsetX, offsetY);
+        } else {
+            if (shapeBackend == ShapeBackend.BLOBS) {
+                blobExtractor.extract(mask, features, offsetX, offsetY);
+            } else if (shapeBackend == ShapeBackend.RUNS) {
+                runMask.extract(mask, features, offsetX, offsetY);
+            } else {
+                if (hierarchy == null) {
+                    // an analysis-only pipeline never sees a frame to size its arena from
+                    hierarchy = arena.alloc();
+                }
+                maskOffset.x = offsetX;
+                maskOffset.y = offsetY;
+                features.compute(findContours(mask, maskOffset));
+            }
+            stageLatencies.lap(PipelineStage.CONTOURS);
+            doLinkFilterFeatures(features);
+            stageLatencies.lap(PipelineStage.FILTER);
+            foundPropHere = doLinkCenterStageProp(features);
+        }
+        stageLatencies.lap(PipelineStage.CLASSIFY);
+        stageLatencies.finish();
+        publish(captureTimeNanos, startNs, false, stageLatencies);
+        return foundPropHere;
+    }
+
+}
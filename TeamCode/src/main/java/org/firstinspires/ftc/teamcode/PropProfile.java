@@ -0,0 +1,158 @@
+package org.firstinspires.ftc.teamcode;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable description of everything that differs between the red and blue prop pipelines:
+ * the crop marks, the HSV bands that make up the prop color, the contour area/perimeter
+ * limits and the spike/prop area thresholds used to classify the two remaining contours,
+ * the spike mark zones SpikeRegionSampler reads instead of contours, and the single chroma
+ * channel bounds PropPipeline.MaskBackend.CHROMA tests instead of the HSV bands.
+ */
+public final class PropProfile {
+
+    // frame size the crop marks and area thresholds below were tuned at
+    public static final int REFERENCE_COLS = 320;
+    public static final int REFERENCE_ROWS = 240;
+
+    // YCrCb channel indices for chromaChannel
+    public static final int CR = 1;
+    public static final int CB = 2;
+
+    public static final PropProfile RED = new PropProfile(
+            "red",
+            0, 320, 103, 240,
+            Arrays.asList(
+                    new HsvBand(0,   34, 0,  12, 255, 255),
+                    new HsvBand(173, 34, 0, 180, 255, 255)),
+            300.0, 10000.0, -1.0, Double.POSITIVE_INFINITY,
+            0, 700, 700, 10000,
+            50, 165, 175, 165, 50,
+            CR, 136, 0, 255);
+
+    public static final PropProfile BLUE = new PropProfile(
+            "blue",
+            0, 320, 69, 240,
+            Collections.singletonList(
+                    new HsvBand(102, 39, 0, 114, 255, 255)),
+            90.0, 10000.0, -1.0, Double.POSITIVE_INFINITY,
+            0, 700, 700, 10000,
+            50, 165, 175, 165, 50,
+            CB, 136, 0, 255);
+
+    public final String name;
+    // crop marks, in pixels: everything outside [left,right) x [top,bottom) is ignored
+    public final int cropLeft;
+    public final int cropRight;
+    public final int cropTop;
+    public final int cropBottom;
+    // pixels inside any of these bands belong to the prop color
+    public final List<HsvBand> bands;
+    // exclusive limits for contours kept by the filter link
+    public final double minArea;
+    public final double maxArea;
+    public final double minPerimeter;
+    public final double maxPerimeter;
+    // inclusive contour area ranges for a bare spike mark and for a prop on a spike mark
+    public final int spikeMin;
+    public final int spikeMax;
+    public final int propMin;
+    public final int propMax;
+    // centers of the left and center spike marks, and the side of a square zone that a prop
+    // standing on a mark just fills; the right mark is out of view. RED and BLUE share them:
+    // the camera sits in the same place on the robot and the start tiles mirror each other,
+    // so both alliances see the marks at the same pixels. Measured on the recorded frames of
+    // both alliances at 320x240, the classified shapes average (52, 165) on the left mark and
+    // (177.5, 165) on the center mark, and a prop is 54 pixels across. The crop tops (103
+    // red, 69 blue) only limit what is masked; the constructor checks that both zones lie
+    // inside the crop, and RegionSamplerReplay scores the zones against the shapes.
+    public final int leftSpikeX;
+    public final int leftSpikeY;
+    public final int centerSpikeX;
+    public final int centerSpikeY;
+    public final int spikeZoneSize;
+    // for the chroma mask backend: pixels with at least chromaMin in YCrCb channel chromaChannel
+    // (CR or CB) and luma in [lumaMin, lumaMax] belong to the prop color
+    public final int chromaChannel;
+    public final int chromaMin;
+    public final int lumaMin;
+    public final int lumaMax;
+
+    public PropProfile(String name,
+                       int cropLeft, int cropRight, int cropTop, int cropBottom,
+                       List<HsvBand> bands,
+                       double minArea, double maxArea, double minPerimeter, double maxPerimeter,
+                       int spikeMin, int spikeMax, int propMin, int propMax,
+                       int leftSpikeX, int leftSpikeY, int centerSpikeX, int centerSpikeY, int spikeZoneSize,
+                       int chromaChannel, int chromaMin, int lumaMin, int lumaMax) {
+        if ((chromaChannel != CR) && (chromaChannel != CB)) {
+            throw new IllegalArgumentException("chromaChannel must be CR or CB, was " + chromaChannel);
+        }
+        if (bands.isEmpty()) {
+            throw new IllegalArgumentException("PropProfile needs at least one HSV band");
+        }
+        int half = spikeZoneSize / 2;
+        if ((spikeZoneSize <= 0)
+                || !zoneInCrop(leftSpikeX, leftSpikeY, half, cropLeft, cropRight, cropTop, cropBottom)
+                || !zoneInCrop(centerSpikeX, centerSpikeY, half, cropLeft, cropRight, cropTop, cropBottom)) {
+            throw new IllegalArgumentException("spike zones of " + spikeZoneSize + " at (" + leftSpikeX + ", "
+                    + leftSpikeY + ") and (" + centerSpikeX + ", " + centerSpikeY + ") must lie inside the crop ["
+                    + cropLeft + ", " + cropRight + ") x [" + cropTop + ", " + cropBottom + ")");
+        }
+        this.name = name;
+        this.cropLeft = cropLeft;
+        this.cropRight = cropRight;
+        this.cropTop = cropTop;
+        this.cropBottom = cropBottom;
+        this.bands = Collections.unmodifiableList(Arrays.asList(bands.toArray(new HsvBand[0])));
+        this.minArea = minArea;
+        this.maxArea = maxArea;
+        this.minPerimeter = minPerimeter;
+        this.maxPerimeter = maxPerimeter;
+        this.spikeMin = spikeMin;
+        this.spikeMax = spikeMax;
+        this.propMin = propMin;
+        this.propMax = propMax;
+        this.leftSpikeX = leftSpikeX;
+        this.leftSpikeY = leftSpikeY;
+        this.centerSpikeX = centerSpikeX;
+        this.centerSpikeY = centerSpikeY;
+        this.spikeZoneSize = spikeZoneSize;
+        this.chromaChannel = chromaChannel;
+        this.chromaMin = chromaMin;
+        this.lumaMin = lumaMin;
+        this.lumaMax = lumaMax;
+    }
+
+    private static boolean zoneInCrop(int x, int y, int half,
+                                      int cropLeft, int cropRight, int cropTop, int cropBottom) {
+        return (x - half >= cropLeft) && (x + half <= cropRight) && (y - half >= cropTop) && (y + half <= cropBottom);
+    }
+
+    /**
+     * This profile with crop marks, spike mark zones and size limits scaled from the 320x240
+     * reference frame to a cols x rows frame.
+     */
+    public PropProfile scaledTo(int cols, int rows) {
+        if ((cols == REFERENCE_COLS) && (rows == REFERENCE_ROWS)) {
+            return this;
+        }
+        double sx = (double) cols / REFERENCE_COLS;
+        double sy = (double) rows / REFERENCE_ROWS;
+        double sArea = sx * sy;
+        double sLength = (sx + sy) / 2;
+        return new PropProfile(name + "@" + cols + "x" + rows,
+                (int) Math.round(cropLeft * sx), (int) Math.round(cropRight * sx),
+                (int) Math.round(cropTop * sy), (int) Math.round(cropBottom * sy),
+                bands,
+                minArea * sArea, maxArea * sArea, minPerimeter * sLength, maxPerimeter * sLength,
+                (int) Math.round(spikeMin * sArea), (int) Math.round(spikeMax * sArea),
+                (int) Math.round(propMin * sArea), (int) Math.round(propMax * sArea),
+                (int) Math.round(leftSpikeX * sx), (int) Math.round(leftSpikeY * sy),
+                (int) Math.round(centerSpikeX * sx), (int) Math.round(centerSpikeY * sy),
+                (int) Math.round(spikeZoneSize * sLength),
+                chromaChannel, chromaMin, lumaMin, lumaMax);
+    }
+}
@@ -0,0 +1,237 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * Aggregates the per-frame prop positions of a PropPipeline into one decision.
+ *
+ * The last windowSize frame decisions are kept with a confidence each, the probability that
+ * a frame reporting a position is right. A frame votes for its position with likelihood
+ * confidence and for each other position with (1 - confidence) / 2; frames that found
+ * nothing do not vote. As soon as the posterior of one position over the window reaches the
+ * threshold (with at least minVotes votes) that position is the decision. If the deadline
+ * passes first, the position with the highest posterior is taken as a best guess, or the
+ * fallback position when no frame voted at all. The decision is latched until reset().
+ *
+ * vote() is called from the frame worker thread, the getters from the OpMode thread.
+ */
+public class PropVoter {
+    public static final int    DEFAULT_WINDOW = 9;
+    public static final double DEFAULT_THRESHOLD = 0.95;
+    public static final int    DEFAULT_MIN_VOTES = 2;
+    public static final long   DEFAULT_DEADLINE_MS = 1500;
+    public static final double DEFAULT_FRAME_CONFIDENCE = 0.8;
+    public static final int    DEFAULT_FALLBACK = 2;  // CENTER
+
+    private static final int POSITIONS = 3;  // 1 LEFT, 2 CENTER, 3 RIGHT
+
+    private final int windowSize;
+    private final double threshold;
+    private final int minVotes;
+    private final long deadlineNs;
+    private final int fallback;
+
+    private final int[] windowPositions;
+    private final double[] windowConfidences;
+    private final double[] logLikelihood = new double[POSITIONS];
+    private final double[] posterior = new double[POSITIONS];
+    private int windowCount = 0;
+    private int windowNext = 0;
+
+    private boolean started = false;
+    private long startNs;
+    private int frames = 0;
+    private int decision = 0;
+    private int decisionFrames = 0;
+    private long decisionNs = 0;
+    private double decisionPosterior = 0;
+    private boolean decidedByDeadline = false;
+
+    public PropVoter() {
+        this(DEFAULT_WINDOW, DEFAULT_THRESHOLD, DEFAULT_MIN_VOTES, DEFAULT_DEADLINE_MS, DEFAULT_FALLBACK);
+    }
+
+    public PropVoter(int windowSize, double threshold, int minVotes, long deadlineMs, int fallback) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("windowSize must be at least 1, was " + windowSize);
+        }
+        if ((fallback < 1) || (fallback > POSITIONS)) {
+            throw new IllegalArgumentException("fallback must be 1..3, was " + fallback);
+        }
+        this.windowSize = windowSize;
+        this.threshold = threshold;
+        this.minVotes = minVotes;
+        this.deadlineNs = deadlineMs * 1000000L;
+        this.fallback = fallback;
+        this.windowPositions = new int[windowSize];
+        this.windowConfidences = new double[windowSize];
+    }
+
+    /**
+     * Forget all votes and any decision. The deadline clock starts at nowNs.
+     */
+    public synchronized void reset(long nowNs) {
+        windowCount = 0;
+        windowNext = 0;
+        started = true;
+        startNs = nowNs;
+        frames = 0;
+        decision = 0;
+        decisionFrames = 0;
+        decisionNs = 0;
+        decisionPosterior = 0;
+        decidedByDeadline = false;
+    }
+
+    /**
+     * Forget all votes and start the deadline clock now, e.g. at waitForStart().
+     */
+    public void reset() {
+        reset(System.nanoTime());
+    }
+
+    /**
+     * Add one frame's result (0 = nothing found, 1..3 = position) with the given confidence.
+     * Starts the deadline clock on the first frame if reset() was not called.
+     * Returns the decision, 0 while undecided.
+     */
+    public synchronized int vote(int position, double confidence, long nowNs) {
+        if (!started) {
+            reset(nowNs);
+        }
+        if (decision != 0) {
+            return decision;
+        }
+        frames++;
+        if ((position >= 1) && (position <= POSITIONS)) {
+            windowPositions[windowNext] = position;
+            windowConfidences[windowNext] = Math.max(0.34, Math.min(0.999, confidence));
+            windowNext = (windowNext + 1) % windowSize;
+            windowCount = Math.min(windowCount + 1, windowSize);
+        }
+        updatePosterior();
+        int best = bestPosition();
+        if ((windowCount >= minVotes) && (posterior[best - 1] >= threshold)) {
+            decide(best, nowNs, false);
+        } else {
+            checkDeadline(nowNs);
+        }
+        return decision;
+    }
+
+    public int vote(int position, long nowNs) {
+        return vote(position, DEFAULT_FRAME_CONFIDENCE, nowNs);
+    }
+
+    /**
+     * Take the best guess if the deadline has passed without a decision, even when no
+     * frames arrive (camera stalled). Returns the decision, 0 while undecided.
+     */
+    public synchronized int checkDeadline(long nowNs) {
+        if (started && (decision == 0) && (nowNs - startNs >= deadlineNs)) {
+            if (windowCount > 0) {
+                decide(bestPosition(), nowNs, true);
+            } else {
+                posterior[fallback - 1] = 1.0 / POSITIONS;
+                decide(fallback, nowNs, true);
+            }
+        }
+        return decision;
+    }
+
+    public int checkDeadline() {
+        return checkDeadline(System.nanoTime());
+    }
+
+    private void updatePosterior() {
+        for (int p = 0; p < POSITIONS; p++) {
+            logLikelihood[p] = 0;
+        }
+        for (int i = 0; i < windowCount; i++) {
+            double confidence = windowConfidences[i];
+            double hit  = Math.log(confidence);
+            double miss = Math.log((1 - confidence) / (POSITIONS - 1));
+            for (int p = 0; p < POSITIONS; p++) {
+                logLikelihood[p] += (windowPositions[i] == p + 1) ? hit : miss;
+            }
+        }
+        double max = Double.NEGATIVE_INFINITY;
+        for (int p = 0; p < POSITIONS; p++) {
+            max = Math.max(max, logLikelihood[p]);
+        }
+        double sum = 0;
+        for (int p = 0; p < POSITIONS; p++) {
+            posterior[p] = Math.exp(logLikelihood[p] - max);
+            sum += posterior[p];
+        }
+        for (int p = 0; p < POSITIONS; p++) {
+            posterior[p] /= sum;
+        }
+    }
+
+    /**
+     * Position with the highest posterior; the most recent vote breaks ties.
+     */
+    private int bestPosition() {
+        int best = (windowCount > 0) ? windowPositions[(windowNext + windowSize - 1) % windowSize] : fallback;
+        for (int p = 0; p < POSITIONS; p++) {
+            if (posterior[p] > posterior[best - 1]) {
+                best = p + 1;
+            }
+        }
+        return best;
+    }
+
+    private void decide(int position, long nowNs, boolean byDeadline) {
+        decision = position;
+        decisionFrames = frames;
+        decisionNs = nowNs - startNs;
+        decisionPosterior = posterior[position - 1];
+        decidedByDeadline = byDeadline;
+    }
+
+    public synchronized boolean isDecided() {
+        return decision != 0;
+    }
+
+    /**
+     * Decided position, 1 LEFT, 2 CENTER, 3 RIGHT; 0 while undecided.
+     */
+    public synchronized int getDecision() {
+        return decision;
+    }
+
+    /**
+     * Frames seen up to and including the deciding frame.
+     */
+    public synchronized int getDecisionFrames() {
+        return decisionFrames;
+    }
+
+    /**
+     * Time from reset() (or the first frame) to the decision.
+     */
+    public synchronized double getDecisionMs() {
+        return decisionNs / 1e6;
+    }
+
+    public synchronized double getDecisionPosterior() {
+        return decisionPosterior;
+    }
+
+    /**
+     * True if the decision is a best guess taken at the deadline.
+     */
+    public synchronized boolean isDecidedByDeadline() {
+        return decidedByDeadline;
+    }
+
+    public synchronized int getFrameCount() {
+        return frames;
+    }
+
+    /**
+     * Current posterior of a position 1..3 over the window.
+     */
+    public synchronized double getPosterior(int position) {
+        return posterior[position - 1];
+    }
+}
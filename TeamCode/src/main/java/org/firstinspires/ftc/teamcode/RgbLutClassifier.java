@@ -0,0 +1,117 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.List;
+
+/**
+ * Classifies RGB(A) pixels against a set of HSV bands with a single table lookup per pixel.
+ *
+ * The table is built once: every quantized RGB cell (bitsPerChannel bits per channel) is
+ * converted to HSV with the same Imgproc.cvtColor call the pipelines use, and marked 255
+ * if its center falls inside any band. Classifying a frame then skips cvtColor and inRange
+ * entirely. Pixels near a band edge may land on the other side of it, since the whole
+ * cell shares the classification of its center. The default of 7 bits per channel (a 2 MB
+ * table) keeps the masks within a fraction of a percent of cvtColor + inRange even for the
+ * narrow blue band, where 6 bits lose the darker prop pixels; see RgbLutCheck.
+ *
+ * classify() keeps scratch buffers, so one classifier serves one thread at a time; share()
+ * gives another thread its own without rebuilding the table.
+ */
+public class RgbLutClassifier {
+    public static final int DEFAULT_BITS = 7;
+
+    private final int bits;
+    private final int shift;
+    private final byte[] table;
+    private byte[] pixelBytes = new byte[0];
+    private byte[] maskBytes  = new byte[0];
+
+    public RgbLutClassifier(List<HsvBand> bands) {
+        this(bands, DEFAULT_BITS);
+    }
+
+    public RgbLutClassifier(List<HsvBand> bands, int bitsPerChannel) {
+        if ((bitsPerChannel < 1) || (bitsPerChannel > 8)) {
+            throw new IllegalArgumentException("bitsPerChannel must be 1..8, was " + bitsPerChannel);
+        }
+        bits = bitsPerChannel;
+        shift = 8 - bits;
+        int levels = 1 << bits;
+        int cells = levels * levels * levels;
+        int half = (shift > 0) ? (1 << (shift - 1)) : 0;
+
+        // one RGB pixel per table cell, at the center of the cell
+        byte[] rgb = new byte[cells * 3];
+        for (int idx = 0; idx < cells; idx++) {
+            rgb[idx*3]   = (byte) (((idx >> (2 * bits)) << shift) | half);
+            rgb[idx*3+1] = (byte) ((((idx >> bits) & (levels - 1)) << shift) | half);
+            rgb[idx*3+2] = (byte) (((idx & (levels - 1)) << shift) | half);
+        }
+        Mat rgbMat = new Mat(levels * levels, levels, CvType.CV_8UC3);
+        Mat hsvMat = new Mat();
+        rgbMat.put(0, 0, rgb);
+        Imgproc.cvtColor(rgbMat, hsvMat, Imgproc.COLOR_RGB2HSV);
+        byte[] hsv = new byte[cells * 3];
+        hsvMat.get(0, 0, hsv);
+        rgbMat.release();
+        hsvMat.release();
+
+        table = new byte[cells];
+        for (int idx = 0; idx < cells; idx++) {
+            int h = hsv[idx*3]   & 0xFF;
+            int s = hsv[idx*3+1] & 0xFF;
+            int v = hsv[idx*3+2] & 0xFF;
+            for (HsvBand band : bands) {
+                if (band.contains(h, s, v)) {
+                    table[idx] = (byte) 255;
+                    break;
+                }
+            }
+        }
+    }
+
+    private RgbLutClassifier(RgbLutClassifier shared) {
+        bits = shared.bits;
+        shift = shared.shift;
+        table = shared.table;
+    }
+
+    /**
+     * A classifier with the same table but its own scratch buffers, for another thread.
+     */
+    public RgbLutClassifier share() {
+        return new RgbLutClassifier(this);
+    }
+
+    public int getBitsPerChannel() {
+        return bits;
+    }
+
+    /**
+     * Write a CV_8U mask (255 = inside a band) for an RGB or RGBA image.
+     * msk must already be allocated with the same size as rgb; both may be submat views.
+     */
+    public void classify(Mat rgb, Mat msk) {
+        int channels = rgb.channels();
+        int pixels = rgb.rows() * rgb.cols();
+        if (pixelBytes.length < pixels * channels) {
+            pixelBytes = new byte[pixels * channels];
+        }
+        if (maskBytes.length < pixels) {
+            maskBytes = new byte[pixels];
+        }
+        rgb.get(0, 0, pixelBytes);
+        int gShift = bits;
+        int rShift = 2 * bits;
+        for (int p = 0, i = 0; p < pixels; p++, i += channels) {
+            int r = (pixelBytes[i]   & 0xFF) >> shift;
+            int g = (pixelBytes[i+1] & 0xFF) >> shift;
+            int b = (pixelBytes[i+2] & 0xFF) >> shift;
+            maskBytes[p] = table[(r << rShift) | (g << gShift) | b];
+        }
+        msk.put(0, 0, maskBytes);
+    }
+}
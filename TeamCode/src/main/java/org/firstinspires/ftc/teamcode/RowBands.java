@@ -0,0 +1,177 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.Mat;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs a per-pixel stage over horizontal bands of an image in parallel, on a small fixed
+ * ForkJoinPool of its own. run() splits the rows into one band per thread and hands each
+ * task row-range views of the source, scratch and output Mats, so every band writes its rows
+ * of the shared output directly and nothing is merged afterwards. The calling thread waits
+ * until all bands are done.
+ *
+ * Bands are numbered 0 to getThreads() - 1, and each band number runs on one thread at a
+ * time, so a task can keep per-band scratch buffers indexed by it.
+ *
+ * The band views are kept for the next frame and only rebuilt when a Mat passed to run(),
+ * its data or its size changes, and the fork/join actions are reinitialized rather than
+ * created again, so a steady stream of frames of one size allocates nothing here;
+ * getViewsCreated() counts the views the last run() had to (re)create.
+ */
+public class RowBands {
+    public static final int MAX_THREADS = 4;
+
+    public interface BandTask {
+        void run(int band, Mat src, Mat scratch, Mat dst);
+    }
+
+    private static final int SRC = 0;
+    private static final int SCRATCH = 1;
+    private static final int DST = 2;
+
+    private final int threads;
+    private final ForkJoinPool pool;
+    private final BandViews[] views = { new BandViews(), new BandViews(), new BandViews() };
+    private final BandAction[] actions;
+    private final RootAction root = new RootAction();
+    private int bands = 0;
+    private int viewsCreated = 0;
+    private BandTask task;
+
+    /**
+     * Row-range views of one Mat passed to run(), one per band, valid while it stays the same.
+     */
+    private static final class BandViews {
+        final Mat[] view = new Mat[MAX_THREADS];
+        Mat parent;
+        long parentAddr;
+        int rows;
+        int cols;
+        int bands;
+
+        boolean matches(Mat mat, int bands) {
+            return (parent == mat) && (parentAddr == mat.dataAddr()) && (rows == mat.rows())
+                    && (cols == mat.cols()) && (this.bands == bands);
+        }
+
+        void release() {
+            for (int b = 0; b < view.length; b++) {
+                if (view[b] != null) {
+                    view[b].release();
+                    view[b] = null;
+                }
+            }
+            parent = null;
+            parentAddr = 0;
+            bands = 0;
+        }
+    }
+
+    public RowBands(int threads) {
+        if ((threads < 2) || (threads > MAX_THREADS)) {
+            throw new IllegalArgumentException("threads must be 2.." + MAX_THREADS + ", was " + threads);
+        }
+        this.threads = threads;
+        this.pool = new ForkJoinPool(threads);
+        this.actions = new BandAction[threads];
+        for (int b = 0; b < threads; b++) {
+            actions[b] = new BandAction(b);
+        }
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Run task over getThreads() bands of rows of src, scratch and dst, which must all have
+     * the same number of rows (they may be views of larger Mats).
+     */
+    public void run(Mat src, Mat scratch, Mat dst, BandTask task) {
+        bands = Math.max(1, Math.min(threads, src.rows()));
+        viewsCreated = 0;
+        ensureViews(views[SRC], src);
+        ensureViews(views[SCRATCH], scratch);
+        ensureViews(views[DST], dst);
+        this.task = task;
+        for (int b = 0; b < bands; b++) {
+            actions[b].reinitialize();
+        }
+        root.reinitialize();
+        try {
+            pool.invoke(root);
+        } finally {
+            this.task = null;
+        }
+    }
+
+    private void ensureViews(BandViews cached, Mat mat) {
+        if (cached.matches(mat, bands)) {
+            return;
+        }
+        cached.release();
+        int rows = mat.rows();
+        for (int b = 0; b < bands; b++) {
+            cached.view[b] = mat.rowRange(b * rows / bands, (b + 1) * rows / bands);
+            viewsCreated++;
+        }
+        cached.parent = mat;
+        cached.parentAddr = mat.dataAddr();
+        cached.rows = rows;
+        cached.cols = mat.cols();
+        cached.bands = bands;
+    }
+
+    /**
+     * Band views the last run() created; 0 while its Mats stay the same.
+     */
+    public int getViewsCreated() {
+        return viewsCreated;
+    }
+
+    /**
+     * Shut the pool's threads down and release the band views.
+     */
+    public void release() {
+        pool.shutdown();
+        for (BandViews cached : views) {
+            cached.release();
+        }
+    }
+
+    private final class RootAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void compute() {
+            if (bands == 1) {
+                actions[0].compute();
+                return;
+            }
+            for (int b = 1; b < bands; b++) {
+                actions[b].fork();
+            }
+            actions[0].compute();
+            for (int b = 1; b < bands; b++) {
+                actions[b].join();
+            }
+        }
+    }
+
+    private final class BandAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int band;
+
+        BandAction(int band) {
+            this.band = band;
+        }
+
+        @Override
+        protected void compute() {
+            task.run(band, views[SRC].view[band], views[SCRATCH].view[band], views[DST].view[band]);
+        }
+    }
+}
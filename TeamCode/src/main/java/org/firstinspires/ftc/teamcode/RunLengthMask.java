@@ -0,0 +1,302 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Run-length encoded binary mask: the set pixels of each row as runs [start, end), kept in
+ * primitive arrays that only grow, so encoding a frame allocates nothing in steady state.
+ * Prop masks are mostly empty, so a mask of a few blobs takes a few hundred runs instead of
+ * a byte per pixel, and all-zero stretches are skipped 8 pixels at a time while encoding.
+ *
+ * extract() labels 8-connected blobs straight from the runs (union-find over runs that touch
+ * in neighboring rows) and fills a ContourFeatures with the same blobs as BlobExtractor: same
+ * area (the contour equivalent of the pixel count, see BlobExtractor.contourArea()), bounding
+ * box and centroid, and the perimeter and enclosing circle estimated from the bounding box
+ * the same way. Blobs come in the raster order of their first pixel, which is not
+ * always connectedComponents' label order.
+ *
+ * writeTo()/readFrom() store the runs compactly (encodedBytes(), see there), e.g. next to a
+ * recorded frame; toMat() turns them back into a 0/255 mask.
+ */
+public class RunLengthMask {
+    private int cols = 0;
+    private int rows = 0;
+    private int runCount = 0;
+    private int[] rowFirstRun = new int[1];  // runs of row y are [rowFirstRun[y], rowFirstRun[y + 1])
+    private int[] runStart = new int[64];
+    private int[] runEnd = new int[64];
+
+    // labeling scratch, per run
+    private int[] parent = new int[64];
+    private int[] blobOf = new int[64];
+    // per blob accumulators
+    private long[] blobArea = new long[16];
+    private long[] blobSumX = new long[16];
+    private long[] blobSumY = new long[16];
+    private int[] blobMinX = new int[16];
+    private int[] blobMinY = new int[16];
+    private int[] blobMaxX = new int[16];
+    private int[] blobMaxY = new int[16];
+
+    private byte[] bytes = new byte[0];
+    private ByteBuffer byteBuffer;  // little endian view of bytes, for skipping zeros
+
+    public int cols() {
+        return cols;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int runCount() {
+        return runCount;
+    }
+
+    /**
+     * Encode a CV_8U mask (nonzero = set); it may be a submat view.
+     */
+    public void encode(Mat mask) {
+        cols = mask.cols();
+        rows = mask.rows();
+        ensureBytes();
+        if (rowFirstRun.length < rows + 1) {
+            rowFirstRun = new int[rows + 1];
+        }
+        mask.get(0, 0, bytes);
+        runCount = 0;
+        for (int y = 0, p = 0; y < rows; y++, p += cols) {
+            rowFirstRun[y] = runCount;
+            int x = 0;
+            while (x < cols) {
+                // skip background, 8 pixels at a time where possible
+                while ((x + 8 <= cols) && (byteBuffer.getLong(p + x) == 0)) {
+                    x += 8;
+                }
+                while ((x < cols) && (bytes[p + x] == 0)) {
+                    x++;
+                }
+                if (x >= cols) {
+                    break;
+                }
+                int start = x;
+                while ((x < cols) && (bytes[p + x] != 0)) {
+                    x++;
+                }
+                addRun(start, x);
+            }
+        }
+        rowFirstRun[rows] = runCount;
+    }
+
+    private void addRun(int start, int end) {
+        if (runCount == runStart.length) {
+            runStart = Arrays.copyOf(runStart, runCount * 2);
+            runEnd = Arrays.copyOf(runEnd, runCount * 2);
+        }
+        runStart[runCount] = start;
+        runEnd[runCount] = end;
+        runCount++;
+    }
+
+    /**
+     * Set pixels in the whole mask.
+     */
+    public int count() {
+        int total = 0;
+        for (int r = 0; r < runCount; r++) {
+            total += runEnd[r] - runStart[r];
+        }
+        return total;
+    }
+
+    /**
+     * Fill features with every 8-connected blob, shifting coordinates by (offsetX, offsetY).
+     * Returns the number of blobs.
+     */
+    public int extract(ContourFeatures features, int offsetX, int offsetY) {
+        if (parent.length < runCount) {
+            parent = new int[runStart.length];
+            blobOf = new int[runStart.length];
+        }
+        for (int r = 0; r < runCount; r++) {
+            parent[r] = r;
+        }
+        // union runs that touch a run of the row above, including diagonally
+        for (int y = 1; y < rows; y++) {
+            int above = rowFirstRun[y - 1];
+            int aboveEnd = rowFirstRun[y];
+            for (int r = rowFirstRun[y]; r < rowFirstRun[y + 1]; r++) {
+                while ((above < aboveEnd) && (runEnd[above] < runStart[r])) {
+                    above++;  // ends left of r's left neighbor
+                }
+                for (int a = above; (a < aboveEnd) && (runStart[a] <= runEnd[r]); a++) {
+                    union(a, r);
+                }
+            }
+        }
+        // number the blobs by their first run, which is their first pixel in raster order
+        int blobs = 0;
+        for (int r = 0; r < runCount; r++) {
+            int root = find(r);
+            if (root == r) {
+                ensureBlobs(blobs + 1);
+                blobArea[blobs] = 0;
+                blobSumX[blobs] = 0;
+                blobSumY[blobs] = 0;
+                blobMinX[blobs] = Integer.MAX_VALUE;
+                blobMinY[blobs] = Integer.MAX_VALUE;
+                blobMaxX[blobs] = -1;
+                blobMaxY[blobs] = -1;
+                blobOf[r] = blobs++;
+            } else {
+                blobOf[r] = blobOf[root];  // root < r, already numbered
+            }
+        }
+        for (int y = 0; y < rows; y++) {
+            for (int r = rowFirstRun[y]; r < rowFirstRun[y + 1]; r++) {
+                int b = blobOf[r];
+                int start = runStart[r];
+                int end = runEnd[r];
+                long length = end - start;
+                blobArea[b] += length;
+                blobSumX[b] += (long) (start + end - 1) * length / 2;
+                blobSumY[b] += y * length;
+                blobMinX[b] = Math.min(blobMinX[b], start);
+                blobMaxX[b] = Math.max(blobMaxX[b], end - 1);
+                blobMinY[b] = Math.min(blobMinY[b], y);
+                blobMaxY[b] = Math.max(blobMaxY[b], y);
+            }
+        }
+        features.reset(blobs);
+        for (int b = 0; b < blobs; b++) {
+            int width = blobMaxX[b] - blobMinX[b] + 1;
+            int height = blobMaxY[b] - blobMinY[b] + 1;
+            features.set(b,
+                    BlobExtractor.contourArea(blobArea[b], width, height),
+                    2.0 * (width + height),
+                    blobMinX[b] + offsetX,
+                    blobMinY[b] + offsetY,
+                    width,
+                    height,
+                    (double) blobSumX[b] / blobArea[b] + offsetX,
+                    (double) blobSumY[b] / blobArea[b] + offsetY);
+        }
+        return blobs;
+    }
+
+    /**
+     * encode(mask), then extract(); a drop-in for BlobExtractor.extract().
+     */
+    public int extract(Mat mask, ContourFeatures features, int offsetX, int offsetY) {
+        encode(mask);
+        return extract(features, offsetX, offsetY);
+    }
+
+    private int find(int r) {
+        while (parent[r] != r) {
+            parent[r] = parent[parent[r]];
+            r = parent[r];
+        }
+        return r;
+    }
+
+    /**
+     * Join the sets of two runs under the smaller root, so every root is its set's first run.
+     */
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA < rootB) {
+            parent[rootB] = rootA;
+        } else if (rootB < rootA) {
+            parent[rootA] = rootB;
+        }
+    }
+
+    private void ensureBlobs(int blobs) {
+        if (blobArea.length >= blobs) {
+            return;
+        }
+        int size = Math.max(blobs, blobArea.length * 2);
+        blobArea = Arrays.copyOf(blobArea, size);
+        blobSumX = Arrays.copyOf(blobSumX, size);
+        blobSumY = Arrays.copyOf(blobSumY, size);
+        blobMinX = Arrays.copyOf(blobMinX, size);
+        blobMinY = Arrays.copyOf(blobMinY, size);
+        blobMaxX = Arrays.copyOf(blobMaxX, size);
+        blobMaxY = Arrays.copyOf(blobMaxY, size);
+    }
+
+    /**
+     * Bytes writeTo() takes: cols and rows as shorts, then per row its run count and runs
+     * as shorts.
+     */
+    public int encodedBytes() {
+        return 2 * (2 + rows + 2 * runCount);
+    }
+
+    /**
+     * Write the runs to buffer at its position, see encodedBytes().
+     */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putShort((short) cols);
+        buffer.putShort((short) rows);
+        for (int y = 0; y < rows; y++) {
+            buffer.putShort((short) (rowFirstRun[y + 1] - rowFirstRun[y]));
+            for (int r = rowFirstRun[y]; r < rowFirstRun[y + 1]; r++) {
+                buffer.putShort((short) runStart[r]);
+                buffer.putShort((short) runEnd[r]);
+            }
+        }
+    }
+
+    /**
+     * Replace the runs with ones written by writeTo(), read from buffer at its position.
+     */
+    public void readFrom(ByteBuffer buffer) {
+        cols = buffer.getShort() & 0xFFFF;
+        rows = buffer.getShort() & 0xFFFF;
+        if (rowFirstRun.length < rows + 1) {
+            rowFirstRun = new int[rows + 1];
+        }
+        runCount = 0;
+        for (int y = 0; y < rows; y++) {
+            rowFirstRun[y] = runCount;
+            int runs = buffer.getShort() & 0xFFFF;
+            for (int i = 0; i < runs; i++) {
+                int start = buffer.getShort() & 0xFFFF;
+                int end = buffer.getShort() & 0xFFFF;
+                addRun(start, end);
+            }
+        }
+        rowFirstRun[rows] = runCount;
+    }
+
+    /**
+     * Decode into a CV_8U mask, 255 where set; mask is (re)allocated to cols x rows.
+     */
+    public void toMat(Mat mask) {
+        mask.create(rows, cols, CvType.CV_8U);
+        ensureBytes();
+        Arrays.fill(bytes, (byte) 0);
+        for (int y = 0, p = 0; y < rows; y++, p += cols) {
+            for (int r = rowFirstRun[y]; r < rowFirstRun[y + 1]; r++) {
+                Arrays.fill(bytes, p + runStart[r], p + runEnd[r], (byte) 255);
+            }
+        }
+        mask.put(0, 0, bytes);
+    }
+
+    private void ensureBytes() {
+        if (bytes.length != rows * cols) {
+            bytes = new byte[rows * cols];
+            byteBuffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+}
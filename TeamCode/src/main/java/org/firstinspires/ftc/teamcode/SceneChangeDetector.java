@@ -0,0 +1,107 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * Cheap test of whether the camera still sees the same scene: each frame is shrunk to a
+ * small color thumbnail and compared with the thumbnail of a reference frame; the score is
+ * the largest absolute difference of any thumbnail pixel in any channel, in levels (0..255).
+ * Comparing color rather than gray catches a red prop moving over gray tiles of about the
+ * same brightness, and taking the largest difference rather than the mean keeps a prop that
+ * covers a few thumbnail pixels from being averaged away by the rest of the frame.
+ *
+ * score() measures a frame against the reference; accept() makes the frame last scored the
+ * new reference. Callers accept the frames they actually process, so slow drift still adds
+ * up to a change instead of being compared away frame by frame.
+ *
+ * The thumbnail averages areas (INTER_AREA), so a small object still shows in the thumbnail
+ * pixels it covers instead of falling between sample points, and sensor noise averages out
+ * within each of them: at 320x240 a noise sigma of 12 levels scores about 8, a moved prop
+ * over 100.
+ */
+public class SceneChangeDetector {
+    public static final int DEFAULT_THUMB_COLS = 32;
+
+    private final int thumbCols;
+    private final Mat thumbMat = new Mat();
+    private final Mat referenceMat = new Mat();
+    private final Mat diffMat = new Mat();
+    private Mat diffChannels;     // diffMat as one channel, rebuilt when diffMat is reallocated
+    private long diffChannelsAddr;
+    private final Size thumbSize = new Size();
+    private boolean hasReference = false;
+    private double lastScore = Double.POSITIVE_INFINITY;
+
+    public SceneChangeDetector() {
+        this(DEFAULT_THUMB_COLS);
+    }
+
+    public SceneChangeDetector(int thumbCols) {
+        if (thumbCols < 1) {
+            throw new IllegalArgumentException("thumbCols must be at least 1, was " + thumbCols);
+        }
+        this.thumbCols = thumbCols;
+    }
+
+    /**
+     * Largest absolute difference between the thumbnails of frame and the reference, or
+     * POSITIVE_INFINITY when there is no reference of the same size yet.
+     */
+    public double score(Mat frame) {
+        thumbSize.width  = Math.min(thumbCols, frame.cols());
+        thumbSize.height = Math.max(1, Math.round((double) frame.rows() * thumbSize.width / frame.cols()));
+        Imgproc.resize(frame, thumbMat, thumbSize, 0, 0, Imgproc.INTER_AREA);
+        if (!hasReference || (referenceMat.cols() != thumbMat.cols()) || (referenceMat.rows() != thumbMat.rows())
+                || (referenceMat.type() != thumbMat.type())) {
+            lastScore = Double.POSITIVE_INFINITY;
+        } else {
+            Core.absdiff(thumbMat, referenceMat, diffMat);
+            if ((diffChannels == null) || (diffChannelsAddr != diffMat.dataAddr())
+                    || (diffChannels.rows() != diffMat.rows())
+                    || (diffChannels.cols() != diffMat.cols() * diffMat.channels())) {
+                releaseDiffChannels();
+                diffChannels = diffMat.reshape(1);
+                diffChannelsAddr = diffMat.dataAddr();
+            }
+            lastScore = Core.minMaxLoc(diffChannels).maxVal;
+        }
+        return lastScore;
+    }
+
+    /**
+     * Make the frame passed to the last score() call the reference.
+     */
+    public void accept() {
+        thumbMat.copyTo(referenceMat);
+        hasReference = true;
+    }
+
+    /**
+     * Forget the reference; the next score() reports a change.
+     */
+    public void reset() {
+        hasReference = false;
+    }
+
+    public double getLastScore() {
+        return lastScore;
+    }
+
+    private void releaseDiffChannels() {
+        if (diffChannels != null) {
+            diffChannels.release();
+        }
+        diffChannels = null;
+        diffChannelsAddr = 0;
+    }
+
+    public void release() {
+        thumbMat.release();
+        referenceMat.release();
+        diffMat.release();
+        releaseDiffChannels();
+    }
+}
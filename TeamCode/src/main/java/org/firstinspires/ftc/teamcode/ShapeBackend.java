@@ -0,0 +1,10 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * How the vision pipelines turn a binary color mask into shapes.
+ */
+public enum ShapeBackend {
+    CONTOURS,   // Imgproc.findContours, then ContourFeatures per contour
+    BLOBS,      // Imgproc.connectedComponentsWithStats, one pass over the mask
+    RUNS        // RunLengthMask: the mask's runs per row, labeled into blobs
+}
@@ -0,0 +1,242 @@
+package org.firstinspires.ftc.teamcode;
+
+import android.util.Log;
+
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import java.io.File;
+import java.util.ArrayDeque;
+
+/**
+ * Writes image snapshots (e.g. a pipeline's fileMat) to files on a background thread, so the
+ * OpMode loop only pays for a Mat copy instead of JPEG encoding and flash writes.
+ *
+ * submit() copies the image into one of capacity + 1 pooled Mats and queues it; the writer
+ * thread encodes and writes queued images in order. When the queue is full the DropPolicy
+ * decides whether the oldest queued snapshot or the new one is dropped. stop() writes out
+ * everything still queued before the thread exits, so call it when the OpMode ends.
+ */
+public class SnapshotWriter {
+    public static final int DEFAULT_CAPACITY = 4;
+
+    public enum DropPolicy {
+        DROP_OLDEST,  // keep the most recent snapshots
+        DROP_NEWEST   // keep the snapshots already queued
+    }
+
+    private static class Job {
+        final Mat image;
+        final File file;
+
+        Job(Mat image, File file) {
+            this.image = image;
+            this.file = file;
+        }
+    }
+
+    private final String tag;
+    private final int capacity;
+    private final DropPolicy policy;
+    private final ArrayDeque<Mat> pool = new ArrayDeque<>();
+    private final ArrayDeque<Job> queue = new ArrayDeque<>();
+    private int pooled = 0;           // Mats created so far, at most capacity + 1
+    private boolean writing = false;  // the writer thread holds a job outside the queue
+
+    private Thread writer;
+    private boolean running = false;
+
+    private long submitted = 0;
+    private long written = 0;
+    private long dropped = 0;
+    private long failed = 0;
+
+    public SnapshotWriter(String tag) {
+        this(tag, DEFAULT_CAPACITY, DropPolicy.DROP_OLDEST);
+    }
+
+    public SnapshotWriter(String tag, int capacity, DropPolicy policy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1, was " + capacity);
+        }
+        this.tag = tag;
+        this.capacity = capacity;
+        this.policy = policy;
+    }
+
+    /**
+     * Start the writer thread.
+     */
+    public synchronized void start() {
+        if (writer != null) {
+            return;
+        }
+        running = true;
+        writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        }, "SnapshotWriter-" + tag);
+        writer.setDaemon(true);
+        writer.setPriority(Thread.MIN_PRIORITY);
+        writer.start();
+    }
+
+    /**
+     * Queue a copy of image to be written to file; the format follows the file extension.
+     * image is copied before returning, so the caller may reuse it right away.
+     * Returns false if the snapshot was dropped because the queue was full.
+     */
+    public synchronized boolean submit(Mat image, File file) {
+        submitted++;
+        Mat copy;
+        if (queue.size() >= capacity) {
+            if (policy == DropPolicy.DROP_NEWEST) {
+                dropped++;
+                return false;
+            }
+            copy = queue.pollFirst().image;
+            dropped++;
+        } else if (!pool.isEmpty()) {
+            copy = pool.pollFirst();
+        } else {
+            copy = new Mat();
+            pooled++;
+        }
+        image.copyTo(copy);
+        queue.addLast(new Job(copy, file));
+        notifyAll();
+        return true;
+    }
+
+    private void writeLoop() {
+        while (true) {
+            Job job;
+            synchronized (this) {
+                while (running && queue.isEmpty()) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        running = false;
+                    }
+                }
+                if (queue.isEmpty()) {
+                    notifyAll();
+                    return;
+                }
+                job = queue.pollFirst();
+                writing = true;
+            }
+            boolean ok;
+            try {
+                ok = Imgcodecs.imwrite(job.file.getPath(), job.image);
+            } catch (RuntimeException e) {
+                ok = false;
+            }
+            if (!ok) {
+                Log.e(tag, "could not write snapshot " + job.file);
+            }
+            synchronized (this) {
+                if (ok) {
+                    written++;
+                } else {
+                    failed++;
+                }
+                pool.addLast(job.image);
+                writing = false;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Wait until every queued snapshot has been written, or timeoutMs has passed.
+     * Returns true if the queue drained in time.
+     */
+    public synchronized boolean flush(long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while ((!queue.isEmpty() || writing) && (writer != null)) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return queue.isEmpty() && !writing;
+    }
+
+    /**
+     * Write out everything still queued (waiting at most timeoutMs), stop the writer
+     * thread and release the pooled Mats.
+     */
+    public void stop(long timeoutMs) {
+        Thread thread;
+        synchronized (this) {
+            if (writer == null) {
+                return;
+            }
+            running = false;
+            notifyAll();
+            thread = writer;
+        }
+        try {
+            thread.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            writer = null;
+            dropped += queue.size();
+            for (Job job : queue) {
+                job.image.release();
+            }
+            queue.clear();
+            if (!thread.isAlive()) {
+                for (Mat mat : pool) {
+                    mat.release();
+                }
+                pool.clear();
+            }
+        }
+    }
+
+    public void stop() {
+        stop(2000);
+    }
+
+    public synchronized long getSubmittedCount() {
+        return submitted;
+    }
+
+    public synchronized long getWrittenCount() {
+        return written;
+    }
+
+    /**
+     * Snapshots dropped because the queue was full, or still queued when stop() timed out.
+     */
+    public synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    public synchronized long getFailedCount() {
+        return failed;
+    }
+
+    public synchronized int getQueuedCount() {
+        return queue.size();
+    }
+
+    /**
+     * Pooled Mats created so far; never more than the queue capacity + 1.
+     */
+    public synchronized int getPooledCount() {
+        return pooled;
+    }
+}
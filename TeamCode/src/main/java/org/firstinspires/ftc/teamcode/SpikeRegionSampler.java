@@ -0,0 +1,227 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * Decides the prop position from fixed spike mark zones of a binary prop color mask, the
+ * CenterStage take on SkystoneDeterminationExample's region averages, without contours.
+ *
+ * The zones come from a PropProfile: around each of the left and center marks, squares of
+ * every scale in SCALES shifted by up to SHIFTS steps of an eighth of the zone size each way,
+ * 75 zones per mark. One integral image of the mask, over the bounding box of all zones,
+ * makes every zone's fill fraction four array reads; the view of the mask over that box is
+ * kept until the mask or the zones change. A zone votes prop when at least propFill of it
+ * is set, and tape when at least TAPE_FILL (2%) is, so a few stray pixels do not count as
+ * tape.
+ *
+ * A mark holds the prop when at least half its zones vote prop and it has more prop votes
+ * than the other mark: 1 for left, 2 for center. If neither does but both marks show tape in
+ * at least half their zones, the prop is on the right mark (3), as with two bare spike
+ * contours. Anything else, e.g. no tape in view, is 0.
+ */
+public class SpikeRegionSampler {
+    public static final double[] SCALES = {0.8, 1.0, 1.2};
+    public static final int SHIFTS = 2;
+    public static final double DEFAULT_PROP_FILL = 0.4;
+    public static final double TAPE_FILL = 0.02;
+
+    private static final int MARKS = 2;  // left, center
+    private static final int ZONES_PER_MARK = SCALES.length * (2 * SHIFTS + 1) * (2 * SHIFTS + 1);
+
+    private final PropProfile profile;
+    private volatile double propFill = DEFAULT_PROP_FILL;
+
+    // zones in mask coordinates, rebuilt when the mask size or offset changes
+    private final int[] zoneX0 = new int[MARKS * ZONES_PER_MARK];
+    private final int[] zoneY0 = new int[MARKS * ZONES_PER_MARK];
+    private final int[] zoneX1 = new int[MARKS * ZONES_PER_MARK];
+    private final int[] zoneY1 = new int[MARKS * ZONES_PER_MARK];
+    private final Rect bounds = new Rect();
+    private int zoneCols = -1;
+    private int zoneRows = -1;
+    private int zoneOffsetX = 0;
+    private int zoneOffsetY = 0;
+
+    private Mat boundsView;       // view of the mask over bounds, kept while mask and bounds stay
+    private Mat boundsParent;
+    private long boundsParentAddr;
+    private final Mat sum = new Mat();
+    private int[] sumBuf = new int[0];
+    private int sumCols = 0;
+
+    private final int[] propVotes = new int[MARKS];
+    private final int[] tapeVotes = new int[MARKS];
+
+    public SpikeRegionSampler(PropProfile profile) {
+        this.profile = profile;
+    }
+
+    /**
+     * Fraction of a zone that has to be set for it to vote prop. Effective from the next frame.
+     */
+    public void setPropFill(double propFill) {
+        this.propFill = propFill;
+    }
+
+    public double getPropFill() {
+        return propFill;
+    }
+
+    /**
+     * Sample mask (CV_8U, 0 or 255) whose top left pixel is (offsetX, offsetY) of the frame
+     * the profile describes. Returns the position as described above.
+     */
+    public int sample(Mat mask, int offsetX, int offsetY) {
+        if ((mask.cols() != zoneCols) || (mask.rows() != zoneRows) ||
+                (offsetX != zoneOffsetX) || (offsetY != zoneOffsetY)) {
+            buildZones(mask.cols(), mask.rows(), offsetX, offsetY);
+        }
+        propVotes[0] = propVotes[1] = 0;
+        tapeVotes[0] = tapeVotes[1] = 0;
+        if ((bounds.width <= 0) || (bounds.height <= 0)) {
+            return 0;
+        }
+        integrate(mask);
+        double fill = propFill;
+        for (int z = 0; z < zoneX0.length; z++) {
+            int area = (zoneX1[z] - zoneX0[z]) * (zoneY1[z] - zoneY0[z]);
+            if (area <= 0) {
+                continue;
+            }
+            int set = regionSum(zoneX0[z], zoneY0[z], zoneX1[z], zoneY1[z]) / 255;
+            int mark = z / ZONES_PER_MARK;
+            if (set > 0) {
+                if (set >= TAPE_FILL * area) {
+                    tapeVotes[mark]++;
+                }
+                if (set >= fill * area) {
+                    propVotes[mark]++;
+                }
+            }
+        }
+        int majority = (ZONES_PER_MARK + 1) / 2;
+        if ((propVotes[0] >= majority) && (propVotes[0] > propVotes[1])) {
+            return 1;
+        }
+        if ((propVotes[1] >= majority) && (propVotes[1] > propVotes[0])) {
+            return 2;
+        }
+        if ((tapeVotes[0] >= majority) && (tapeVotes[1] >= majority)) {
+            return 3;
+        }
+        return 0;
+    }
+
+    /**
+     * Zones of the left (0) or center (1) mark that voted prop in the last sample().
+     */
+    public int getPropVotes(int mark) {
+        return propVotes[mark];
+    }
+
+    /**
+     * Zones of the left (0) or center (1) mark that showed tape in the last sample().
+     */
+    public int getTapeVotes(int mark) {
+        return tapeVotes[mark];
+    }
+
+    public int getZonesPerMark() {
+        return ZONES_PER_MARK;
+    }
+
+    /**
+     * Integral image of the bounding box of all zones, copied out for regionSum().
+     */
+    private void integrate(Mat mask) {
+        if ((boundsView == null) || (boundsParent != mask) || (boundsParentAddr != mask.dataAddr())) {
+            releaseBoundsView();
+            boundsView = mask.submat(bounds);
+            boundsParent = mask;
+            boundsParentAddr = mask.dataAddr();
+        }
+        Imgproc.integral(boundsView, sum, CvType.CV_32S);
+        int size = (int) sum.total();
+        if (sumBuf.length < size) {
+            sumBuf = new int[size];
+        }
+        sum.get(0, 0, sumBuf);
+        sumCols = sum.cols();
+    }
+
+    /**
+     * Sum of mask values in [x0, x1) x [y0, y1), mask coordinates within bounds.
+     */
+    private int regionSum(int x0, int y0, int x1, int y1) {
+        x0 -= bounds.x;
+        x1 -= bounds.x;
+        y0 -= bounds.y;
+        y1 -= bounds.y;
+        return sumBuf[y1 * sumCols + x1] - sumBuf[y0 * sumCols + x1]
+                - sumBuf[y1 * sumCols + x0] + sumBuf[y0 * sumCols + x0];
+    }
+
+    private void releaseBoundsView() {
+        if (boundsView != null) {
+            boundsView.release();
+        }
+        boundsView = null;
+        boundsParent = null;
+        boundsParentAddr = 0;
+    }
+
+    private void buildZones(int cols, int rows, int offsetX, int offsetY) {
+        releaseBoundsView();
+        int[] centerX = {profile.leftSpikeX - offsetX, profile.centerSpikeX - offsetX};
+        int[] centerY = {profile.leftSpikeY - offsetY, profile.centerSpikeY - offsetY};
+        double step = profile.spikeZoneSize / 8.0;
+        int minX = cols;
+        int minY = rows;
+        int maxX = 0;
+        int maxY = 0;
+        int z = 0;
+        for (int mark = 0; mark < MARKS; mark++) {
+            for (double scale : SCALES) {
+                double half = profile.spikeZoneSize * scale / 2;
+                for (int dy = -SHIFTS; dy <= SHIFTS; dy++) {
+                    for (int dx = -SHIFTS; dx <= SHIFTS; dx++) {
+                        double x = centerX[mark] + dx * step;
+                        double y = centerY[mark] + dy * step;
+                        // clipped to the mask; a zone left empty does not vote
+                        zoneX0[z] = clamp((int) Math.round(x - half), cols);
+                        zoneX1[z] = Math.max(zoneX0[z], clamp((int) Math.round(x + half), cols));
+                        zoneY0[z] = clamp((int) Math.round(y - half), rows);
+                        zoneY1[z] = Math.max(zoneY0[z], clamp((int) Math.round(y + half), rows));
+                        if ((zoneX1[z] > zoneX0[z]) && (zoneY1[z] > zoneY0[z])) {
+                            minX = Math.min(minX, zoneX0[z]);
+                            minY = Math.min(minY, zoneY0[z]);
+                            maxX = Math.max(maxX, zoneX1[z]);
+                            maxY = Math.max(maxY, zoneY1[z]);
+                        }
+                        z++;
+                    }
+                }
+            }
+        }
+        bounds.x = minX;
+        bounds.y = minY;
+        bounds.width = Math.max(0, maxX - minX);
+        bounds.height = Math.max(0, maxY - minY);
+        zoneCols = cols;
+        zoneRows = rows;
+        zoneOffsetX = offsetX;
+        zoneOffsetY = offsetY;
+    }
+
+    private static int clamp(int value, int max) {
+        return Math.max(0, Math.min(value, max));
+    }
+
+    public void release() {
+        releaseBoundsView();
+        sum.release();
+    }
+}
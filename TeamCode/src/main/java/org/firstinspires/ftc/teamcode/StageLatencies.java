@@ -0,0 +1,66 @@
+package org.firstinspires.ftc.teamcode;
+
+import java.util.Locale;
+
+/**
+ * One LatencyHistogram per PipelineStage, timed by laps: start() at the top of a frame,
+ * then lap(stage) as each stage finishes.
+ */
+public class StageLatencies {
+    private static final PipelineStage[] STAGES = PipelineStage.values();
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+    private final LatencyHistogram frame = new LatencyHistogram();
+    private long frameStart;
+    private long lapStart;
+
+    public StageLatencies() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public void start() {
+        frameStart = System.nanoTime();
+        lapStart = frameStart;
+    }
+
+    /**
+     * Record the time since start() or the previous lap against a stage.
+     */
+    public void lap(PipelineStage stage) {
+        long now = System.nanoTime();
+        histograms[stage.ordinal()].record(now - lapStart);
+        lapStart = now;
+    }
+
+    /**
+     * Record the time since start() as the whole-frame latency.
+     */
+    public void finish() {
+        frame.record(System.nanoTime() - frameStart);
+    }
+
+    public LatencyHistogram get(PipelineStage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    public LatencyHistogram getFrame() {
+        return frame;
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+        frame.reset();
+    }
+
+    /**
+     * "p50 0.42 p95 0.80 max 1.20 ms" for a histogram, for telemetry.
+     */
+    public static String summary(LatencyHistogram histogram) {
+        return String.format(Locale.US, "p50 %.2f p95 %.2f max %.2f ms",
+                histogram.percentileMs(0.50), histogram.percentileMs(0.95), histogram.maxMs());
+    }
+}
@@ -0,0 +1,67 @@
+package android.util;
+
+/**
+ * Desktop stand-in for android.util.Log, used only by the TeamCode frame replay build.
+ * Messages at or above the level given by -Dreplay.logLevel (V, D, I, W or E; default I)
+ * are printed to System.out as "D/TAG: message".
+ */
+public final class Log {
+    public static final int VERBOSE = 2;
+    public static final int DEBUG   = 3;
+    public static final int INFO    = 4;
+    public static final int WARN    = 5;
+    public static final int ERROR   = 6;
+    public static final int ASSERT  = 7;
+
+    private static final String LEVELS = "??VDIWEA";  // letter of each priority, VERBOSE..ASSERT
+
+    private static final int MIN_LEVEL = parseLevel(System.getProperty("replay.logLevel", "I"));
+
+    private Log() {
+    }
+
+    public static int v(String tag, String msg) { return println(VERBOSE, tag, msg); }
+    public static int d(String tag, String msg) { return println(DEBUG, tag, msg); }
+    public static int i(String tag, String msg) { return println(INFO, tag, msg); }
+    public static int w(String tag, String msg) { return println(WARN, tag, msg); }
+    public static int e(String tag, String msg) { return println(ERROR, tag, msg); }
+
+    public static int v(String tag, String msg, Throwable tr) { return println(VERBOSE, tag, msg + '\n' + getStackTraceString(tr)); }
+    public static int d(String tag, String msg, Throwable tr) { return println(DEBUG, tag, msg + '\n' + getStackTraceString(tr)); }
+    public static int i(String tag, String msg, Throwable tr) { return println(INFO, tag, msg + '\n' + getStackTraceString(tr)); }
+    public static int w(String tag, String msg, Throwable tr) { return println(WARN, tag, msg + '\n' + getStackTraceString(tr)); }
+    public static int e(String tag, String msg, Throwable tr) { return println(ERROR, tag, msg + '\n' + getStackTraceString(tr)); }
+
+    public static boolean isLoggable(String tag, int level) {
+        return level >= MIN_LEVEL;
+    }
+
+    public static String getStackTraceString(Throwable tr) {
+        if (tr == null) {
+            return "";
+        }
+        java.io.StringWriter sw = new java.io.StringWriter();
+        tr.printStackTrace(new java.io.PrintWriter(sw));
+        return sw.toString();
+    }
+
+    public static int println(int priority, String tag, String msg) {
+        if (priority < MIN_LEVEL) {
+            return 0;
+        }
+        char level = ((priority >= VERBOSE) && (priority <= ASSERT)) ? LEVELS.charAt(priority) : '?';
+        String line = level + "/" + tag + ": " + msg;
+        System.out.println(line);
+        return line.length();
+    }
+
+    private static int parseLevel(String level) {
+        switch (level.toUpperCase()) {
+            case "V": return VERBOSE;
+            case "D": return DEBUG;
+            case "W": return WARN;
+            case "E": return ERROR;
+            default:  return INFO;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+
+import java.io.File;
+import java.util.Locale;
+
+/**
+ * Replays recorded frames through two prop pipelines, one cropping with CropMode.BLANK (copy
+ * the frame and black out everything outside the ROI) and one with CropMode.ROI (a view of
+ * the ROI only), and compares their per-frame positions and times: whole frames with live
+ * view off, and the crop and mask links alone. Frames where the positions differ are printed.
+ * Runs on the desktop like FrameReplay:
+ *
+ *   java ... org.firstinspires.ftc.teamcode.CropModeReplay <imageDir> [red|blue] [passes]
+ */
+public class CropModeReplay {
+
+    private static final PropPipeline.CropMode[] MODES = { PropPipeline.CropMode.BLANK, PropPipeline.CropMode.ROI };
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("usage: CropModeReplay <imageDir> [red|blue] [passes]");
+            return;
+        }
+        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+
+        File dir = new File(args[0]);
+        String alliance = (args.length > 1) ? args[1] : "red";
+        int passes = (args.length > 2) ? Integer.parseInt(args[2]) : 1;
+
+        PropPipeline[] pipelines = new PropPipeline[MODES.length];
+        FrameReplay[] replays = new FrameReplay[MODES.length];
+        for (int m = 0; m < MODES.length; m++) {
+            pipelines[m] = (PropPipeline) FrameReplay.createPipeline(alliance);
+            pipelines[m].setCropMode(MODES[m]);
+            pipelines[m].setLiveView(false);
+            replays[m] = new FrameReplay(pipelines[m]);
+        }
+
+        int frames = 0;
+        int agree = 0;
+        double[] frameMs = new double[MODES.length];
+        double[] maskMs = new double[MODES.length];
+        for (File file : FrameReplay.listImages(dir)) {
+            Mat frame = FrameReplay.loadFrame(file);
+            int[] positions = new int[MODES.length];
+            for (int m = 0; m < MODES.length; m++) {
+                PropPipeline pipeline = pipelines[m];
+                for (int pass = 0; pass < passes; pass++) {
+                    frameMs[m] += replays[m].runFrame(file.getName(), frame).latencyMs;
+                }
+                positions[m] = pipeline.getResult().position;
+                for (int pass = 0; pass < passes; pass++) {
+                    long start = System.nanoTime();
+                    pipeline.doLinkInRange(pipeline.doLinkCropImage(frame));
+                    maskMs[m] += (System.nanoTime() - start) / 1e6;
+                }
+            }
+            frame.release();
+
+            frames++;
+            if (positions[0] == positions[1]) {
+                agree++;
+            } else {
+                System.out.println(String.format(Locale.US, "%-24s BLANK %-6s ROI %-6s", file.getName(),
+                        FrameReplay.describeResult(alliance, positions[0]),
+                        FrameReplay.describeResult(alliance, positions[1])));
+            }
+        }
+        if (frames == 0) {
+            System.out.println("no images found in " + dir);
+            return;
+        }
+
+        int timed = frames * passes;
+        System.out.println(String.format(Locale.US, "%d frames, %d positions agree (%.1f%%)",
+                frames, agree, 100.0 * agree / frames));
+        for (int m = 0; m < MODES.length; m++) {
+            System.out.println(String.format(Locale.US, "%-6s crop+mask %.3f ms, frame %.3f ms",
+                    MODES[m], maskMs[m] / timed, frameMs[m] / timed));
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+import org.openftc.easyopencv.OpenCvPipeline;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Feeds recorded images (e.g. the image_*.jpg files OpModeTakeImage writes to /sdcard/FIRST/)
+ * through any OpenCvPipeline and reports per-frame latency, throughput and the detection
+ * result for each image.
+ *
+ * Runs on a plain desktop JVM through the stand-ins in src/replay/java, next to it (see
+ * src/replay/readme.md):
+ *
+ *   java ... org.firstinspires.ftc.teamcode.FrameReplay <imageDir> [red|blue|gold|gold-fused|null] [passes]
+ */
+public class FrameReplay {
+
+    /**
+     * Outcome of one replayed frame.
+     */
+    public static class FrameReport {
+        public final String name;
+        public final double latencyMs;
+        public final String result;
+
+        public FrameReport(String name, double latencyMs, String result) {
+            this.name = name;
+            this.latencyMs = latencyMs;
+            this.result = result;
+        }
+    }
+
+    private final OpenCvPipeline pipeline;
+    private boolean initialized = false;
+    private final Mat cameraFrame = new Mat();
+
+    public FrameReplay(OpenCvPipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * All .jpg/.jpeg/.png files in a directory, sorted by name (i.e. by capture time
+     * for the files OpModeTakeImage writes).
+     */
+    public static List<File> listImages(File dir) {
+        List<File> images = new ArrayList<>();
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return images;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            String name = file.getName().toLowerCase(Locale.US);
+            if (file.isFile() && (name.endsWith(".jpg") || name.endsWith(".jpeg") || name.endsWith(".png"))) {
+                images.add(file);
+            }
+        }
+        return images;
+    }
+
+    /**
+     * Load an image as the camera would deliver it: imread gives BGR, the webcam gives RGBA.
+     */
+    public static Mat loadFrame(File file) {
+        Mat bgr = Imgcodecs.imread(file.getPath(), Imgcodecs.IMREAD_COLOR);
+        if (bgr.empty()) {
+            throw new IllegalArgumentException("could not read image " + file);
+        }
+        Mat rgba = new Mat();
+        Imgproc.cvtColor(bgr, rgba, Imgproc.COLOR_BGR2RGBA);
+        bgr.release();
+        return rgba;
+    }
+
+    /**
+     * Short description of what the pipeline detected on its last frame.
+     */
+    public static String describe(OpenCvPipeline pipeline) {
+        if (pipeline instanceof PropPipeline) {
+            PropPipeline prop = (PropPipeline) pipeline;
+            return describeResult(prop.getProfile().name, prop.getResult().position);
+        }
+        if (pipeline instanceof GoldPipeline) {
+            return describeResult("gold", ((GoldPipeline) pipeline).getResult().position);
+        }
+        return "-";
+    }
+
+    /**
+     * Short description of a result code (e.g. from the event log or a match recording)
+     * of the pipeline createPipeline() knows by that name.
+     */
+    public static String describeResult(String pipelineName, int result) {
+        int scaled = pipelineName.indexOf('@');  // profile names of scaled profiles, "red@640x480"
+        String name = (scaled >= 0) ? pipelineName.substring(0, scaled) : pipelineName;
+        switch (name.toLowerCase(Locale.US)) {
+            case "red":
+            case "blue":
+                switch (result) {
+                    case 1:  return "LEFT";
+                    case 2:  return "CENTER";
+                    case 3:  return "RIGHT";
+                    default: return "none";
+                }
+            case "gold":
+                return (result > 0) ? "gold" : "none";
+            default:
+                return "-";
+        }
+    }
+
+    /**
+     * Run one frame through the pipeline, calling init() first if this is the first frame.
+     */
+    public FrameReport runFrame(String name, Mat frame) {
+        // like the camera, hand the pipeline its own buffer; pipelines may draw onto it
+        frame.copyTo(cameraFrame);
+        long start = System.nanoTime();
+        if (!initialized) {
+            pipeline.init(cameraFrame);
+            initialized = true;
+        }
+        pipeline.processFrame(cameraFrame);
+        long end = System.nanoTime();
+        return new FrameReport(name, (end - start) / 1e6, describe(pipeline));
+    }
+
+    /**
+     * Replay already loaded frames, in order, the given number of times.
+     */
+    public List<FrameReport> run(List<String> names, List<Mat> frames, int passes) {
+        List<FrameReport> reports = new ArrayList<>();
+        for (int pass = 0; pass < passes; pass++) {
+            for (int i = 0; i < frames.size(); i++) {
+                reports.add(runFrame(names.get(i), frames.get(i)));
+            }
+        }
+        return reports;
+    }
+
+    /**
+     * Mean, median and max latency plus throughput for a set of reports.
+     */
+    public static String summarize(List<FrameReport> reports) {
+        if (reports.isEmpty()) {
+            return "no frames";
+        }
+        double[] latencies = new double[reports.size()];
+        double total = 0;
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = reports.get(i).latencyMs;
+            total += latencies[i];
+        }
+        Arrays.sort(latencies);
+        return String.format(Locale.US,
+                "%d frames  mean %.3f ms  p50 %.3f ms  p95 %.3f ms  max %.3f ms  throughput %.1f fps",
+                latencies.length,
+                total / latencies.length,
+                latencies[latencies.length / 2],
+                latencies[Math.min(latencies.length - 1, (int) (latencies.length * 0.95))],
+                latencies[latencies.length - 1],
+                latencies.length / (total / 1000.0));
+    }
+
+    public static OpenCvPipeline createPipeline(String name) {
+        switch (name.toLowerCase(Locale.US)) {
+            case "red":  return new PipelinePropRed();
+            case "blue": return new PipelinePropBlue();
+            case "gold": return new GoldPipeline();
+            case "gold-fused": {
+                GoldPipeline gold = new GoldPipeline();
+                gold.setMode(GoldPipeline.Mode.FUSED);
+                return gold;
+            }
+            case "null": return new PipelineNull();
+            default: throw new IllegalArgumentException("unknown pipeline " + name + ", expected red|blue|gold|gold-fused|null");
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("usage: FrameReplay <imageDir> [red|blue|gold|gold-fused|null] [passes]");
+            return;
+        }
+        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+
+        File dir = new File(args[0]);
+        OpenCvPipeline pipeline = createPipeline((args.length > 1) ? args[1] : "red");
+        int passes = (args.length > 2) ? Integer.parseInt(args[2]) : 1;
+
+        List<String> names = new ArrayList<>();
+        List<Mat> frames = new ArrayList<>();
+        for (File file : listImages(dir)) {
+            names.add(file.getName());
+            frames.add(loadFrame(file));
+        }
+        if (frames.isEmpty()) {
+            System.out.println("no images found in " + dir);
+            return;
+        }
+
+        List<FrameReport> reports = new FrameReplay(pipeline).run(names, frames, passes);
+        for (FrameReport report : reports.subList(0, frames.size())) {
+            System.out.println(String.format(Locale.US, "%-40s %8.3f ms  %s", report.name, report.latencyMs, report.result));
+        }
+        System.out.println(pipeline.getClass().getSimpleName() + ": " + summarize(reports));
+        StageLatencies latencies = null;
+        if (pipeline instanceof PropPipeline) {
+            latencies = ((PropPipeline) pipeline).getStageLatencies();
+        } else if (pipeline instanceof GoldPipeline) {
+            latencies = ((GoldPipeline) pipeline).getStageLatencies();
+        }
+        if (latencies != null) {
+            for (PipelineStage stage : PipelineStage.values()) {
+                if (latencies.get(stage).count() > 0) {
+                    System.out.println(String.format(Locale.US, "  %-9s %s", stage, StageLatencies.summary(latencies.get(stage))));
+                }
+            }
+        }
+
+        for (Mat frame : frames) {
+            frame.release();
+        }
+    }
+}
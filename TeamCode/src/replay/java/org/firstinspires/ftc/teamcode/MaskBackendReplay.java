@@ -0,0 +1,102 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+
+import java.io.File;
+import java.util.Locale;
+
+/**
+ * Replays recorded frames through two prop pipelines, one masking with MaskBackend.HSV and
+ * one with another backend (CHROMA by default), and compares their masks, per-frame
+ * positions and times.
+ *
+ * Mask agreement is reported as the intersection over union of the two masks and the share
+ * of HSV mask pixels the other backend misses; frames where the positions differ are
+ * printed. Times are whole frames (processFrame) with live view off. Runs on the desktop
+ * like FrameReplay:
+ *
+ *   java ... org.firstinspires.ftc.teamcode.MaskBackendReplay <imageDir> [red|blue] [CHROMA|RGB_LUT] [passes]
+ */
+public class MaskBackendReplay {
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("usage: MaskBackendReplay <imageDir> [red|blue] [CHROMA|RGB_LUT] [passes]");
+            return;
+        }
+        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+
+        File dir = new File(args[0]);
+        String alliance = (args.length > 1) ? args[1] : "red";
+        PropPipeline.MaskBackend backend = PropPipeline.MaskBackend.valueOf(
+                (args.length > 2) ? args[2].toUpperCase(Locale.US) : "CHROMA");
+        int passes = (args.length > 3) ? Integer.parseInt(args[3]) : 1;
+
+        PropPipeline hsv = (PropPipeline) FrameReplay.createPipeline(alliance);
+        PropPipeline other = (PropPipeline) FrameReplay.createPipeline(alliance);
+        other.setMaskBackend(backend);
+        hsv.setLiveView(false);
+        other.setLiveView(false);
+        FrameReplay hsvReplay = new FrameReplay(hsv);
+        FrameReplay otherReplay = new FrameReplay(other);
+
+        Mat hsvMask = new Mat();
+        Mat both = new Mat();
+        Mat either = new Mat();
+        int frames = 0;
+        int agree = 0;
+        long bothPixels = 0;
+        long eitherPixels = 0;
+        long hsvPixels = 0;
+        double hsvMs = 0;
+        double otherMs = 0;
+        for (File file : FrameReplay.listImages(dir)) {
+            Mat frame = FrameReplay.loadFrame(file);
+            for (int pass = 0; pass < passes; pass++) {
+                hsvMs += hsvReplay.runFrame(file.getName(), frame).latencyMs;
+                otherMs += otherReplay.runFrame(file.getName(), frame).latencyMs;
+            }
+            int hsvPosition = hsv.getResult().position;
+            int otherPosition = other.getResult().position;
+
+            // masks of the same frame, outside the timed runs
+            hsv.doLinkMask(hsv.doLinkCropImage(frame)).copyTo(hsvMask);
+            Mat otherMask = other.doLinkMask(other.doLinkCropImage(frame));
+            Core.bitwise_and(hsvMask, otherMask, both);
+            Core.bitwise_or(hsvMask, otherMask, either);
+            long frameBoth = Core.countNonZero(both);
+            long frameEither = Core.countNonZero(either);
+            bothPixels += frameBoth;
+            eitherPixels += frameEither;
+            hsvPixels += Core.countNonZero(hsvMask);
+            frame.release();
+
+            frames++;
+            if (hsvPosition == otherPosition) {
+                agree++;
+            } else {
+                System.out.println(String.format(Locale.US, "%-24s HSV %-6s %s %-6s  mask IoU %.3f",
+                        file.getName(), FrameReplay.describeResult(alliance, hsvPosition), backend,
+                        FrameReplay.describeResult(alliance, otherPosition),
+                        (frameEither > 0) ? (double) frameBoth / frameEither : 1.0));
+            }
+        }
+        if (frames == 0) {
+            System.out.println("no images found in " + dir);
+            return;
+        }
+        hsvMask.release();
+        both.release();
+        either.release();
+
+        int runs = frames * passes;
+        System.out.println(String.format(Locale.US,
+                "%d frames, %d positions agree (%.1f%%); mask IoU %.3f, %.1f%% of HSV pixels missed",
+                frames, agree, 100.0 * agree / frames,
+                (eitherPixels > 0) ? (double) bothPixels / eitherPixels : 1.0,
+                (hsvPixels > 0) ? 100.0 * (hsvPixels - bothPixels) / hsvPixels : 0.0));
+        System.out.println(String.format(Locale.US, "HSV %.3f ms, %s %.3f ms per frame",
+                hsvMs / runs, backend, otherMs / runs));
+    }
+}
@@ -0,0 +1,80 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Desktop check of MatchRecorder: replays recorded images through a prop pipeline that
+ * records into a small temporary ring, wrapping it several times, then reads the ring back
+ * with MatchRingTool and checks that the newest frames and their results survived.
+ * Prints the recorder's cost per frame against its budget. Exits with status 1 on failure.
+ *
+ *   java ... org.firstinspires.ftc.teamcode.MatchRecorderCheck <imageDir> [red|blue] [subsample]
+ */
+public class MatchRecorderCheck {
+
+    private static void check(boolean condition, String what) {
+        System.out.println((condition ? "ok    " : "FAIL  ") + what);
+        if (!condition) {
+            System.exit(1);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("usage: MatchRecorderCheck <imageDir> [red|blue] [subsample]");
+            return;
+        }
+        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+        String alliance = (args.length > 1) ? args[1] : "red";
+        int subsample = (args.length > 2) ? Integer.parseInt(args[2]) : MatchRecorder.DEFAULT_SUBSAMPLE;
+
+        List<Mat> frames = new ArrayList<>();
+        for (File file : FrameReplay.listImages(new File(args[0]))) {
+            frames.add(FrameReplay.loadFrame(file));
+        }
+        check(!frames.isEmpty(), "images loaded");
+        int slots = Math.max(2, frames.size() / 2);
+        int passes = 3;
+
+        File ring = File.createTempFile("match", ".ring");
+        ring.deleteOnExit();
+        MatchRecorder recorder = new MatchRecorder(ring, slots, frames.get(0).cols(), frames.get(0).rows(),
+                subsample, 0);  // no budget, so every frame is recorded
+        PropPipeline pipeline = (PropPipeline) FrameReplay.createPipeline(alliance);
+        pipeline.setRecorder(recorder);
+        FrameReplay replay = new FrameReplay(pipeline);
+        List<Integer> results = new ArrayList<>();
+        for (int pass = 0; pass < passes; pass++) {
+            for (Mat frame : frames) {
+                replay.runFrame("frame", frame);
+                results.add(pipeline.getResult().position);
+            }
+        }
+        recorder.close();
+        LatencyHistogram latency = recorder.getRecordLatency();
+        System.out.println(String.format(Locale.US, "record %s  (budget %.1f ms)  ring %d KB",
+                StageLatencies.summary(latency), MatchRecorder.DEFAULT_BUDGET_MS, ring.length() / 1024));
+
+        List<MatchRingTool.RingFrame> read = MatchRingTool.read(ring);
+        int total = results.size();
+        check(recorder.getRecordedCount() == total, "every frame recorded");
+        check(read.size() == slots, "ring holds the last " + slots + " frames");
+        check(read.get(read.size() - 1).sequence == total - 1, "newest frame is the last one recorded");
+        boolean resultsMatch = true;
+        boolean sizesMatch = true;
+        for (MatchRingTool.RingFrame frame : read) {
+            resultsMatch &= (frame.result == results.get((int) frame.sequence));
+            sizesMatch &= (frame.image.size().equals(frames.get(0).size()) && (frame.image.channels() == 4));
+        }
+        check(resultsMatch, "recorded results match the pipeline results");
+        check(sizesMatch, "frames read back at camera size as RGBA");
+        check(latency.percentileMs(0.5) <= MatchRecorder.DEFAULT_BUDGET_MS, "median record cost within budget");
+    }
+}
@@ -0,0 +1,192 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Offline tool for MatchRecorder ring files: lists the recorded frames, extracts them into
+ * PNG images (which FrameReplay can replay), or feeds them straight into a pipeline and
+ * compares its results with the ones recorded in the match. Frames are scaled back up to
+ * the size the camera delivered them at. Runs on the desktop like FrameReplay:
+ *
+ *   java ... org.firstinspires.ftc.teamcode.MatchRingTool <ring> list
+ *   java ... org.firstinspires.ftc.teamcode.MatchRingTool <ring> extract <dir>
+ *   java ... org.firstinspires.ftc.teamcode.MatchRingTool <ring> replay [red|blue|gold|null]
+ */
+public class MatchRingTool {
+
+    /**
+     * One frame read back from a ring file, as an RGBA Mat like the camera delivers.
+     */
+    public static class RingFrame {
+        public final long sequence;
+        public final long captureNs;
+        public final long recordNs;
+        public final long exposure;
+        public final int result;
+        public final Mat image;
+
+        RingFrame(long sequence, long captureNs, long recordNs, long exposure, int result, Mat image) {
+            this.sequence = sequence;
+            this.captureNs = captureNs;
+            this.recordNs = recordNs;
+            this.exposure = exposure;
+            this.result = result;
+            this.image = image;
+        }
+    }
+
+    /**
+     * All complete frames in the ring, oldest first.
+     */
+    public static List<RingFrame> read(File ringFile) throws IOException {
+        List<RingFrame> frames = new ArrayList<>();
+        try (RandomAccessFile file = new RandomAccessFile(ringFile, "r");
+             FileChannel channel = file.getChannel()) {
+            MappedByteBuffer ring = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            ring.order(ByteOrder.LITTLE_ENDIAN);
+            if (ring.getInt(MatchRecorder.H_MAGIC) != MatchRecorder.MAGIC) {
+                throw new IOException(ringFile + " is not a match ring file");
+            }
+            if (ring.getInt(MatchRecorder.H_VERSION) != MatchRecorder.VERSION) {
+                throw new IOException(ringFile + " has unsupported version " + ring.getInt(MatchRecorder.H_VERSION));
+            }
+            int slots = ring.getInt(MatchRecorder.H_SLOTS);
+            int slotSize = ring.getInt(MatchRecorder.H_SLOT_SIZE);
+            byte[] bytes = new byte[0];
+            for (int slot = 0; slot < slots; slot++) {
+                int base = MatchRecorder.HEADER_SIZE + slot * slotSize;
+                long sequence = ring.getLong(base + MatchRecorder.S_SEQUENCE);
+                if (sequence < 0) {
+                    continue;  // never written, or torn by a crash mid-write
+                }
+                int cols = ring.getInt(base + MatchRecorder.S_COLS);
+                int rows = ring.getInt(base + MatchRecorder.S_ROWS);
+                int channels = ring.getInt(base + MatchRecorder.S_CHANNELS);
+                int length = ring.getInt(base + MatchRecorder.S_LENGTH);
+                if (bytes.length != length) {
+                    bytes = new byte[length];
+                }
+                ring.position(base + MatchRecorder.SLOT_HEADER_SIZE);
+                ring.get(bytes, 0, length);
+                Mat stored = new Mat(rows, cols, CvType.CV_8UC(channels));
+                stored.put(0, 0, bytes);
+                Mat image = new Mat();
+                Imgproc.cvtColor(stored, image, (channels == 3) ? Imgproc.COLOR_RGB2RGBA : Imgproc.COLOR_GRAY2RGBA);
+                stored.release();
+                int frameCols = ring.getInt(base + MatchRecorder.S_FRAME_COLS);
+                int frameRows = ring.getInt(base + MatchRecorder.S_FRAME_ROWS);
+                if ((frameCols != cols) || (frameRows != rows)) {
+                    Mat full = new Mat();
+                    Imgproc.resize(image, full, new Size(frameCols, frameRows), 0, 0, Imgproc.INTER_NEAREST);
+                    image.release();
+                    image = full;
+                }
+                frames.add(new RingFrame(sequence,
+                        ring.getLong(base + MatchRecorder.S_CAPTURE),
+                        ring.getLong(base + MatchRecorder.S_RECORD),
+                        ring.getLong(base + MatchRecorder.S_EXPOSURE),
+                        ring.getInt(base + MatchRecorder.S_RESULT),
+                        image));
+            }
+        }
+        Collections.sort(frames, new Comparator<RingFrame>() {
+            @Override
+            public int compare(RingFrame a, RingFrame b) {
+                return Long.compare(a.sequence, b.sequence);
+            }
+        });
+        return frames;
+    }
+
+    private static String frameName(RingFrame frame) {
+        return String.format(Locale.US, "ring_%06d_r%d.png", frame.sequence, frame.result);
+    }
+
+    private static void list(List<RingFrame> frames) {
+        long firstNs = frames.get(0).captureNs;
+        for (RingFrame frame : frames) {
+            System.out.println(String.format(Locale.US, "%8d %10.3f s  exposure %6d  result %d  %dx%d",
+                    frame.sequence, (frame.captureNs - firstNs) / 1e9, frame.exposure, frame.result,
+                    frame.image.cols(), frame.image.rows()));
+        }
+    }
+
+    private static void extract(List<RingFrame> frames, File dir) {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IllegalArgumentException("could not create " + dir);
+        }
+        Mat bgr = new Mat();
+        for (RingFrame frame : frames) {
+            Imgproc.cvtColor(frame.image, bgr, Imgproc.COLOR_RGBA2BGR);
+            Imgcodecs.imwrite(new File(dir, frameName(frame)).getPath(), bgr);
+        }
+        bgr.release();
+        System.out.println(frames.size() + " frames written to " + dir);
+    }
+
+    private static void replay(List<RingFrame> frames, String pipelineName) {
+        FrameReplay replay = new FrameReplay(FrameReplay.createPipeline(pipelineName));
+        List<FrameReplay.FrameReport> reports = new ArrayList<>();
+        int mismatches = 0;
+        for (RingFrame frame : frames) {
+            FrameReplay.FrameReport report = replay.runFrame(frameName(frame), frame.image);
+            reports.add(report);
+            String recorded = FrameReplay.describeResult(pipelineName, frame.result);
+            boolean same = recorded.equals(report.result);
+            if (!same) {
+                mismatches++;
+            }
+            System.out.println(String.format(Locale.US, "%-28s %8.3f ms  match %-7s replay %-7s%s",
+                    report.name, report.latencyMs, recorded, report.result, same ? "" : "  *"));
+        }
+        System.out.println(FrameReplay.summarize(reports));
+        System.out.println(mismatches + " of " + frames.size() + " frames differ from the recorded result");
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("usage: MatchRingTool <ring> list | extract <dir> | replay [red|blue|gold|null]");
+            return;
+        }
+        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+
+        List<RingFrame> frames = read(new File(args[0]));
+        if (frames.isEmpty()) {
+            System.out.println("no frames in " + args[0]);
+            return;
+        }
+        switch (args[1]) {
+            case "list":
+                list(frames);
+                break;
+            case "extract":
+                extract(frames, new File((args.length > 2) ? args[2] : "ring"));
+                break;
+            case "replay":
+                replay(frames, (args.length > 2) ? args[2] : "red");
+                break;
+            default:
+                System.out.println("unknown command " + args[1]);
+        }
+        for (RingFrame frame : frames) {
+            frame.image.release();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Desktop check of PipelineGovernor: holds each recorded image still for a number of camera
+ * frames (with a little sensor noise added to every frame), then cuts to the next image.
+ * Frames are stamped at the given camera rate, so the governor's frame rates read as they
+ * would on the robot. Checks that the governed result at the end of every still period
+ * matches the ungoverned pipeline, and that frames were skipped while the scene was still.
+ * Exits with status 1 on failure.
+ *
+ *   java ... org.firstinspires.ftc.teamcode.PipelineGovernorCheck <imageDir> [red|blue] [holdFrames] [fps]
+ */
+public class PipelineGovernorCheck {
+
+    private static void check(boolean condition, String what) {
+        System.out.println((condition ? "ok    " : "FAIL  ") + what);
+        if (!condition) {
+            System.exit(1);
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("usage: PipelineGovernorCheck <imageDir> [red|blue] [holdFrames] [fps]");
+            return;
+        }
+        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+        String alliance = (args.length > 1) ? args[1] : "red";
+        int hold = (args.length > 2) ? Integer.parseInt(args[2]) : 60;
+        double fps = (args.length > 3) ? Double.parseDouble(args[3]) : 30;
+        long frameNs = (long) (1e9 / fps);
+
+        List<Mat> frames = new ArrayList<>();
+        for (File file : FrameReplay.listImages(new File(args[0]))) {
+            frames.add(FrameReplay.loadFrame(file));
+        }
+        check(!frames.isEmpty(), "images loaded");
+
+        // reference results, every frame processed
+        PropPipeline reference = (PropPipeline) FrameReplay.createPipeline(alliance);
+        reference.init(frames.get(0));
+        List<Integer> expected = new ArrayList<>();
+        for (Mat frame : frames) {
+            reference.processFrame(frame, 0);
+            expected.add(reference.getResult().position);
+        }
+
+        PropPipeline pipeline = (PropPipeline) FrameReplay.createPipeline(alliance);
+        PipelineGovernor governor = new PipelineGovernor(pipeline);
+        governor.init(frames.get(0));
+        Mat noisy = new Mat();
+        Mat noise = new Mat();
+        Mat noMask = new Mat();
+        long captureNs = 0;
+        int mismatches = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < frames.size(); i++) {
+            Mat frame = frames.get(i);
+            // signed noise of sigma 2 on every channel, saturated back into the frame type
+            noise.create(frame.rows(), frame.cols() * frame.channels(), CvType.CV_16S);
+            for (int n = 0; n < hold; n++) {
+                Core.randn(noise, 0, 2);
+                Core.add(frame, noise.reshape(frame.channels()), noisy, noMask, frame.depth());
+                governor.processFrame(noisy, captureNs);
+                captureNs += frameNs;
+            }
+            int position = pipeline.getResult().position;
+            if (position != expected.get(i)) {
+                mismatches++;
+                System.out.println("image " + i + ": governed " + position + ", expected " + expected.get(i));
+            }
+        }
+        double wallMs = (System.nanoTime() - start) / 1e6;
+
+        long total = governor.getProcessedCount() + governor.getSkippedCount();
+        System.out.println(String.format(Locale.US,
+                "%d frames: %d processed, %d skipped, interval %d, %.1f of %.1f fps, saved %.1f ms of %.1f ms replay",
+                total, governor.getProcessedCount(), governor.getSkippedCount(), governor.getInterval(),
+                governor.getEffectiveFps(), governor.getInputFps(), governor.getSavedMs(), wallMs));
+        check(total == (long) frames.size() * hold, "every frame counted");
+        check(mismatches == 0, "governed results match every-frame results");
+        check(governor.getSkippedCount() > 0, "frames skipped while the scene is still");
+        check(governor.getEffectiveFps() < governor.getInputFps(), "effective rate below camera rate");
+
+        // a governor that is switched off processes everything
+        PropPipeline plain = (PropPipeline) FrameReplay.createPipeline(alliance);
+        PipelineGovernor off = new PipelineGovernor(plain);
+        off.setEnabled(false);
+        off.init(frames.get(0));
+        for (int n = 0; n < hold; n++) {
+            off.processFrame(frames.get(0), n * frameNs);
+        }
+        check(off.getSkippedCount() == 0, "disabled governor skips nothing");
+    }
+}
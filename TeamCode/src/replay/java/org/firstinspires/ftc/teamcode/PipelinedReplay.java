@@ -0,0 +1,101 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Replays recorded frames through PipelinedPropPipeline as fast as the pipeline takes them,
+ * first serially (both stages on the calling thread) and then pipelined (analysis on its own
+ * thread), and reports the throughput and per-frame latency of each. A plain PropPipeline run
+ * first gives the reference positions; the final result of every image is checked against it.
+ *
+ * Pipelining only pays off with a second free core; on one core the two threads take turns
+ * and the handoff adds latency without adding throughput. Runs on the desktop like FrameReplay:
+ *
+ *   java ... org.firstinspires.ftc.teamcode.PipelinedReplay <imageDir> [red|blue] [framesPerImage]
+ */
+public class PipelinedReplay {
+
+    private static PropProfile profile(String alliance) {
+        return "blue".equalsIgnoreCase(alliance) ? PropProfile.BLUE : PropProfile.RED;
+    }
+
+    /**
+     * Feed each image framesPerImage times, as if the camera held it; returns the number of
+     * images whose final result differs from expected.
+     */
+    private static int run(String label, PipelinedPropPipeline pipeline, List<Mat> frames,
+                           int framesPerImage, List<Integer> expected) {
+        Mat cameraFrame = new Mat();
+        pipeline.init(frames.get(0));
+        pipeline.getMaskStage().setLiveView(false);
+        int mismatches = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < frames.size(); i++) {
+            for (int n = 0; n < framesPerImage; n++) {
+                frames.get(i).copyTo(cameraFrame);
+                pipeline.processFrame(cameraFrame, System.nanoTime());
+            }
+            // later images overwrite the slots, so check each image once it is through
+            long waitStart = System.nanoTime();
+            pipeline.awaitIdle(1000);
+            start += System.nanoTime() - waitStart;
+            if (pipeline.getResult().position != expected.get(i)) {
+                mismatches++;
+            }
+        }
+        double wallMs = (System.nanoTime() - start) / 1e6;
+        pipeline.stop();
+        cameraFrame.release();
+
+        LatencyHistogram latencies = pipeline.getLatencies();
+        System.out.println(String.format(Locale.US,
+                "%-10s %6d frames %8.1f fps  latency p50 %.2f p95 %.2f max %.2f ms  handoff wait %.1f ms  %d mismatches",
+                label, pipeline.getFrameCount(), pipeline.getFrameCount() * 1000.0 / wallMs,
+                latencies.percentileMs(0.50), latencies.percentileMs(0.95), latencies.maxMs(),
+                pipeline.getHandoffWaitMs(), mismatches));
+        return mismatches;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("usage: PipelinedReplay <imageDir> [red|blue] [framesPerImage]");
+            return;
+        }
+        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+
+        String alliance = (args.length > 1) ? args[1] : "red";
+        int framesPerImage = (args.length > 2) ? Integer.parseInt(args[2]) : 30;
+        List<Mat> frames = new ArrayList<>();
+        for (File file : FrameReplay.listImages(new File(args[0]))) {
+            frames.add(FrameReplay.loadFrame(file));
+        }
+        if (frames.isEmpty()) {
+            System.out.println("no images found in " + args[0]);
+            return;
+        }
+
+        PropPipeline reference = (PropPipeline) FrameReplay.createPipeline(alliance);
+        FrameReplay replay = new FrameReplay(reference);
+        List<Integer> expected = new ArrayList<>();
+        for (Mat frame : frames) {
+            replay.runFrame("", frame);
+            expected.add(reference.getResult().position);
+        }
+
+        PipelinedPropPipeline serial = new PipelinedPropPipeline(profile(alliance));
+        serial.setPipelined(false);
+        int mismatches = run("serial", serial, frames, framesPerImage, expected);
+        mismatches += run("pipelined", new PipelinedPropPipeline(profile(alliance)), frames, framesPerImage, expected);
+        System.out.println(String.format(Locale.US, "%d images, %d available processors, %d mismatches",
+                frames.size(), Runtime.getRuntime().availableProcessors(), mismatches));
+        for (Mat frame : frames) {
+            frame.release();
+        }
+    }
+}
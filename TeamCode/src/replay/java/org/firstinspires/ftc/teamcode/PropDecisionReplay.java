@@ -0,0 +1,137 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Replays recorded frame sequences through a prop pipeline and its PropVoter, and reports
+ * how long each sequence takes to reach a decision, in frames and in milliseconds.
+ *
+ * Each subdirectory of the given directory is one sequence (the directory itself if it holds
+ * images directly). Milliseconds are replay processing time; the camera-bound time assumes
+ * the given stream frame rate. Runs on the desktop like FrameReplay:
+ *
+ *   java ... org.firstinspires.ftc.teamcode.PropDecisionReplay <dir> [red|blue] [fps]
+ */
+public class PropDecisionReplay {
+
+    /**
+     * Outcome of one replayed sequence.
+     */
+    public static class DecisionReport {
+        public final String sequence;
+        public final int decision;         // 0 if the sequence ran out before a decision
+        public final int frames;
+        public final double decisionMs;
+        public final double posterior;
+        public final boolean byDeadline;
+
+        public DecisionReport(String sequence, int decision, int frames, double decisionMs,
+                              double posterior, boolean byDeadline) {
+            this.sequence = sequence;
+            this.decision = decision;
+            this.frames = frames;
+            this.decisionMs = decisionMs;
+            this.posterior = posterior;
+            this.byDeadline = byDeadline;
+        }
+    }
+
+    /**
+     * Feed the frames in order until the pipeline's voter decides.
+     */
+    public static DecisionReport run(String sequence, PropPipeline pipeline, List<Mat> frames) {
+        FrameReplay replay = new FrameReplay(pipeline);
+        PropVoter voter = pipeline.getVoter();
+        voter.reset();
+        for (int i = 0; (i < frames.size()) && !voter.isDecided(); i++) {
+            replay.runFrame(sequence, frames.get(i));
+        }
+        if (!voter.isDecided()) {
+            return new DecisionReport(sequence, 0, voter.getFrameCount(), 0, 0, false);
+        }
+        return new DecisionReport(sequence, voter.getDecision(), voter.getDecisionFrames(),
+                voter.getDecisionMs(), voter.getDecisionPosterior(), voter.isDecidedByDeadline());
+    }
+
+    private static List<File> listSequences(File dir) {
+        List<File> sequences = new ArrayList<>();
+        if (!FrameReplay.listImages(dir).isEmpty()) {
+            sequences.add(dir);
+        }
+        File[] files = dir.listFiles();
+        if (files != null) {
+            Arrays.sort(files);
+            for (File file : files) {
+                if (file.isDirectory() && !FrameReplay.listImages(file).isEmpty()) {
+                    sequences.add(file);
+                }
+            }
+        }
+        return sequences;
+    }
+
+    private static String positionName(int position) {
+        switch (position) {
+            case 1:  return "LEFT";
+            case 2:  return "CENTER";
+            case 3:  return "RIGHT";
+            default: return "undecided";
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("usage: PropDecisionReplay <dir> [red|blue] [fps]");
+            return;
+        }
+        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+
+        File dir = new File(args[0]);
+        String alliance = (args.length > 1) ? args[1] : "red";
+        double fps = (args.length > 2) ? Double.parseDouble(args[2]) : 30;
+
+        List<DecisionReport> reports = new ArrayList<>();
+        for (File sequence : listSequences(dir)) {
+            List<Mat> frames = new ArrayList<>();
+            for (File file : FrameReplay.listImages(sequence)) {
+                frames.add(FrameReplay.loadFrame(file));
+            }
+            PropPipeline pipeline = (PropPipeline) FrameReplay.createPipeline(alliance);
+            DecisionReport report = run(sequence.getName(), pipeline, frames);
+            reports.add(report);
+            System.out.println(String.format(Locale.US, "%-30s %-9s %3d frames %8.3f ms  camera %7.1f ms  p=%.3f%s",
+                    report.sequence, positionName(report.decision), report.frames, report.decisionMs,
+                    report.frames * 1000.0 / fps, report.posterior, report.byDeadline ? "  (deadline)" : ""));
+            for (Mat frame : frames) {
+                frame.release();
+            }
+        }
+        if (reports.isEmpty()) {
+            System.out.println("no images found in " + dir);
+            return;
+        }
+
+        int decided = 0;
+        int totalFrames = 0;
+        double totalMs = 0;
+        for (DecisionReport report : reports) {
+            if (report.decision > 0) {
+                decided++;
+                totalFrames += report.frames;
+                totalMs += report.decisionMs;
+            }
+        }
+        System.out.println(String.format(Locale.US, "%d/%d sequences decided, mean %.1f frames, %.3f ms (camera %.1f ms at %.0f fps)",
+                decided, reports.size(),
+                (decided > 0) ? (double) totalFrames / decided : 0,
+                (decided > 0) ? totalMs / decided : 0,
+                (decided > 0) ? totalFrames * 1000.0 / fps / decided : 0, fps));
+    }
+}
@@ -0,0 +1,112 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+
+import java.io.File;
+import java.util.Locale;
+
+/**
+ * Replays recorded frames through two prop pipelines, one classifying shapes (contours) and
+ * one sampling spike mark regions, and compares their per-frame positions and times.
+ *
+ * Prints every frame where the two disagree, then a table of shapes (rows) against regions
+ * (columns) and the mean time per frame of each. Frames in a directory whose name contains
+ * left, center or right are also scored against that position. Runs on the desktop like
+ * FrameReplay:
+ *
+ *   java ... org.firstinspires.ftc.teamcode.RegionSamplerReplay <imageDir> [red|blue] [passes]
+ */
+public class RegionSamplerReplay {
+
+    private static int expectedPosition(File dir) {
+        String name = dir.getName().toLowerCase(Locale.US);
+        if (name.contains("left")) {
+            return 1;
+        } else if (name.contains("center")) {
+            return 2;
+        } else if (name.contains("right")) {
+            return 3;
+        }
+        return -1;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("usage: RegionSamplerReplay <imageDir> [red|blue] [passes]");
+            return;
+        }
+        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+
+        File dir = new File(args[0]);
+        String alliance = (args.length > 1) ? args[1] : "red";
+        int passes = (args.length > 2) ? Integer.parseInt(args[2]) : 1;
+        int expected = expectedPosition(dir);
+
+        PropPipeline shapes = (PropPipeline) FrameReplay.createPipeline(alliance);
+        PropPipeline regions = (PropPipeline) FrameReplay.createPipeline(alliance);
+        regions.setClassifyBackend(PropPipeline.ClassifyBackend.REGIONS);
+        for (PropPipeline pipeline : new PropPipeline[] {shapes, regions}) {
+            pipeline.setLiveView(false);
+        }
+        FrameReplay shapesReplay = new FrameReplay(shapes);
+        FrameReplay regionsReplay = new FrameReplay(regions);
+
+        int[][] table = new int[4][4];
+        int frames = 0;
+        int agree = 0;
+        int shapesRight = 0;
+        int regionsRight = 0;
+        double shapesMs = 0;
+        double regionsMs = 0;
+        for (File file : FrameReplay.listImages(dir)) {
+            Mat frame = FrameReplay.loadFrame(file);
+            int shapesPosition = 0;
+            int regionsPosition = 0;
+            for (int pass = 0; pass < passes; pass++) {
+                shapesMs += shapesReplay.runFrame(file.getName(), frame).latencyMs;
+                shapesPosition = shapes.getResult().position;
+                regionsMs += regionsReplay.runFrame(file.getName(), frame).latencyMs;
+                regionsPosition = regions.getResult().position;
+            }
+            frame.release();
+            frames++;
+            table[shapesPosition][regionsPosition]++;
+            if (shapesPosition == regionsPosition) {
+                agree++;
+            } else {
+                SpikeRegionSampler sampler = regions.getRegionSampler();
+                System.out.println(String.format(Locale.US,
+                        "%-24s shapes %-6s regions %-6s  prop votes %d/%d  tape votes %d/%d  of %d",
+                        file.getName(), FrameReplay.describeResult(alliance, shapesPosition),
+                        FrameReplay.describeResult(alliance, regionsPosition),
+                        sampler.getPropVotes(0), sampler.getPropVotes(1),
+                        sampler.getTapeVotes(0), sampler.getTapeVotes(1), sampler.getZonesPerMark()));
+            }
+            if (shapesPosition == expected) {
+                shapesRight++;
+            }
+            if (regionsPosition == expected) {
+                regionsRight++;
+            }
+        }
+        if (frames == 0) {
+            System.out.println("no images found in " + dir);
+            return;
+        }
+
+        System.out.println("shapes \\ regions   none   LEFT CENTER  RIGHT");
+        for (int s = 0; s < table.length; s++) {
+            System.out.println(String.format(Locale.US, "%-18s %6d %6d %6d %6d",
+                    FrameReplay.describeResult(alliance, s), table[s][0], table[s][1], table[s][2], table[s][3]));
+        }
+        int runs = frames * passes;
+        System.out.println(String.format(Locale.US,
+                "%d frames, %d agree (%.1f%%); shapes %.3f ms, regions %.3f ms per frame",
+                frames, agree, 100.0 * agree / frames, shapesMs / runs, regionsMs / runs));
+        if (expected > 0) {
+            System.out.println(String.format(Locale.US, "expected %s: shapes %d/%d, regions %d/%d",
+                    FrameReplay.describeResult(alliance, expected), shapesRight, frames, regionsRight, frames));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+
+import java.io.File;
+import java.util.Locale;
+
+/**
+ * Desktop check of RgbLutClassifier: masks every recorded image with the prop profile's
+ * bands twice, by cvtColor + inRange (MaskBackend.HSV) and by the lookup table
+ * (MaskBackend.RGB_LUT), and checks that the two masks differ in at most maxDiffPercent of
+ * the cropped pixels on every image (default 0.5). Exits with status 1 on failure.
+ *
+ *   java ... org.firstinspires.ftc.teamcode.RgbLutCheck <imageDir> [red|blue] [maxDiffPercent]
+ */
+public class RgbLutCheck {
+
+    private static void check(boolean condition, String what) {
+        System.out.println((condition ? "ok    " : "FAIL  ") + what);
+        if (!condition) {
+            System.exit(1);
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("usage: RgbLutCheck <imageDir> [red|blue] [maxDiffPercent]");
+            return;
+        }
+        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+        String alliance = (args.length > 1) ? args[1] : "red";
+        double maxDiffPercent = (args.length > 2) ? Double.parseDouble(args[2]) : 0.5;
+
+        PropPipeline hsv = (PropPipeline) FrameReplay.createPipeline(alliance);
+        PropPipeline lut = (PropPipeline) FrameReplay.createPipeline(alliance);
+        lut.setMaskBackend(PropPipeline.MaskBackend.RGB_LUT);
+        FrameReplay hsvReplay = new FrameReplay(hsv);
+        FrameReplay lutReplay = new FrameReplay(lut);
+
+        Mat hsvMask = new Mat();
+        Mat diff = new Mat();
+        int images = 0;
+        int failed = 0;
+        double worstPercent = 0;
+        for (File file : FrameReplay.listImages(new File(args[0]))) {
+            Mat frame = FrameReplay.loadFrame(file);
+            // one full frame each, so both pipelines have sized their buffers
+            hsvReplay.runFrame(file.getName(), frame);
+            lutReplay.runFrame(file.getName(), frame);
+            hsv.doLinkMask(hsv.doLinkCropImage(frame)).copyTo(hsvMask);
+            Mat lutMask = lut.doLinkMask(lut.doLinkCropImage(frame));
+            Core.compare(hsvMask, lutMask, diff, Core.CMP_NE);
+            double percent = 100.0 * Core.countNonZero(diff) / hsvMask.total();
+            worstPercent = Math.max(worstPercent, percent);
+            if (percent > maxDiffPercent) {
+                failed++;
+                System.out.println(String.format(Locale.US, "%-24s %.3f%% of pixels differ",
+                        file.getName(), percent));
+            }
+            frame.release();
+            images++;
+        }
+        hsvMask.release();
+        diff.release();
+
+        check(images > 0, "images loaded");
+        check(failed == 0, String.format(Locale.US,
+                "LUT and HSV masks differ in at most %.2f%% of pixels (worst %.3f%% of %d images)",
+                maxDiffPercent, worstPercent, images));
+    }
+}
@@ -0,0 +1,120 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+
+import java.io.File;
+import java.util.Locale;
+
+/**
+ * Replays recorded frames through three prop pipelines, one per ShapeBackend, and compares
+ * their positions, the time of their shape stage alone and of whole frames, and the size of
+ * each frame's mask as bytes against its runs (RunLengthMask.encodedBytes()).
+ *
+ * The shape stage is timed on the mask each pipeline leaves for the frame: contours are
+ * traced and filtered, blobs and runs are labeled and filtered. Frames where BLOBS or RUNS
+ * disagree with CONTOURS are printed. Allocations per frame are measured by
+ * ShapeBackendBenchmark with -prof gc. Runs on the desktop like FrameReplay:
+ *
+ *   java ... org.firstinspires.ftc.teamcode.RunMaskReplay <imageDir> [red|blue] [passes]
+ */
+public class RunMaskReplay {
+
+    private static final ShapeBackend[] BACKENDS = ShapeBackend.values();
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("usage: RunMaskReplay <imageDir> [red|blue] [passes]");
+            return;
+        }
+        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+
+        File dir = new File(args[0]);
+        String alliance = (args.length > 1) ? args[1] : "red";
+        int passes = (args.length > 2) ? Integer.parseInt(args[2]) : 1;
+
+        PropPipeline[] pipelines = new PropPipeline[BACKENDS.length];
+        FrameReplay[] replays = new FrameReplay[BACKENDS.length];
+        for (int b = 0; b < BACKENDS.length; b++) {
+            pipelines[b] = (PropPipeline) FrameReplay.createPipeline(alliance);
+            pipelines[b].setShapeBackend(BACKENDS[b]);
+            pipelines[b].setLiveView(false);
+            replays[b] = new FrameReplay(pipelines[b]);
+        }
+
+        int frames = 0;
+        int[] agree = new int[BACKENDS.length];
+        double[] frameMs = new double[BACKENDS.length];
+        double[] shapeMs = new double[BACKENDS.length];
+        long maskBytes = 0;
+        long runBytes = 0;
+        long runs = 0;
+        int maxRunBytes = 0;
+        for (File file : FrameReplay.listImages(dir)) {
+            Mat frame = FrameReplay.loadFrame(file);
+            int[] positions = new int[BACKENDS.length];
+            for (int b = 0; b < BACKENDS.length; b++) {
+                for (int pass = 0; pass < passes; pass++) {
+                    frameMs[b] += replays[b].runFrame(file.getName(), frame).latencyMs;
+                }
+                positions[b] = pipelines[b].getResult().position;
+            }
+
+            // the shape stage alone, on each pipeline's own mask of the frame
+            for (int b = 0; b < BACKENDS.length; b++) {
+                PropPipeline pipeline = pipelines[b];
+                Mat mask = pipeline.doLinkInRange(pipeline.doLinkCropImage(frame));
+                for (int pass = 0; pass < passes; pass++) {
+                    long start = System.nanoTime();
+                    if (BACKENDS[b] == ShapeBackend.BLOBS) {
+                        pipeline.doLinkFilterFeatures(pipeline.doLinkFindBlobs());
+                    } else if (BACKENDS[b] == ShapeBackend.RUNS) {
+                        pipeline.doLinkFilterFeatures(pipeline.doLinkFindRuns());
+                    } else {
+                        pipeline.doLinkFilterContours(pipeline.doLinkFindContours(mask));
+                    }
+                    shapeMs[b] += (System.nanoTime() - start) / 1e6;
+                }
+                if (BACKENDS[b] == ShapeBackend.RUNS) {
+                    RunLengthMask runMask = pipeline.getRunMask();
+                    maskBytes += (long) runMask.cols() * runMask.rows();
+                    runBytes += runMask.encodedBytes();
+                    runs += runMask.runCount();
+                    maxRunBytes = Math.max(maxRunBytes, runMask.encodedBytes());
+                }
+            }
+            frame.release();
+
+            frames++;
+            boolean printed = false;
+            for (int b = 0; b < BACKENDS.length; b++) {
+                if (positions[b] == positions[0]) {
+                    agree[b]++;
+                } else if (!printed) {
+                    printed = true;
+                    StringBuilder line = new StringBuilder(String.format(Locale.US, "%-24s", file.getName()));
+                    for (int c = 0; c < BACKENDS.length; c++) {
+                        line.append(String.format(Locale.US, " %s %-6s", BACKENDS[c],
+                                FrameReplay.describeResult(alliance, positions[c])));
+                    }
+                    System.out.println(line);
+                }
+            }
+        }
+        if (frames == 0) {
+            System.out.println("no images found in " + dir);
+            return;
+        }
+
+        int timed = frames * passes;
+        for (int b = 0; b < BACKENDS.length; b++) {
+            System.out.println(String.format(Locale.US,
+                    "%-8s shapes %.3f ms, frame %.3f ms; positions agree with CONTOURS on %d of %d frames",
+                    BACKENDS[b], shapeMs[b] / timed, frameMs[b] / timed, agree[b], frames));
+        }
+        System.out.println(String.format(Locale.US,
+                "mask %d bytes per frame as bytes, %d as runs (%.1f runs, max %d bytes): %.1f%% of the mask",
+                maskBytes / frames, runBytes / frames, (double) runs / frames, maxRunBytes,
+                100.0 * runBytes / maskBytes));
+    }
+}
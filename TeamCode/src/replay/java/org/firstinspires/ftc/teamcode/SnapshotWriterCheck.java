@@ -0,0 +1,91 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Locale;
+
+/**
+ * Desktop check of SnapshotWriter against a temporary directory: bursts of snapshots under
+ * both drop policies, the written/dropped counters, flush on stop, a failing write, and the
+ * time submit() costs the caller. Exits with status 1 on the first failed check.
+ *
+ *   java ... org.firstinspires.ftc.teamcode.SnapshotWriterCheck [count]
+ */
+public class SnapshotWriterCheck {
+
+    private static void check(boolean condition, String what) {
+        System.out.println((condition ? "ok    " : "FAIL  ") + what);
+        if (!condition) {
+            System.exit(1);
+        }
+    }
+
+    private static int countFiles(File dir) {
+        File[] files = dir.listFiles();
+        return (files == null) ? 0 : files.length;
+    }
+
+    private static void burst(File dir, SnapshotWriter.DropPolicy policy, int count) {
+        Mat image = new Mat(240, 320, CvType.CV_8UC3);
+        SnapshotWriter writer = new SnapshotWriter("check", 3, policy);
+        writer.start();
+        long maxSubmitNs = 0;
+        long totalSubmitNs = 0;
+        for (int i = 0; i < count; i++) {
+            Core.randu(image, 0, 255);
+            long start = System.nanoTime();
+            writer.submit(image, new File(dir, String.format(Locale.US, "snap_%04d.jpg", i)));
+            long elapsed = System.nanoTime() - start;
+            maxSubmitNs = Math.max(maxSubmitNs, elapsed);
+            totalSubmitNs += elapsed;
+        }
+        writer.stop();
+
+        String name = policy.name();
+        System.out.println(String.format(Locale.US, "%s: submitted %d written %d dropped %d pooled %d  submit mean %.3f ms max %.3f ms",
+                name, writer.getSubmittedCount(), writer.getWrittenCount(), writer.getDroppedCount(),
+                writer.getPooledCount(), totalSubmitNs / 1e6 / count, maxSubmitNs / 1e6));
+        check(writer.getSubmittedCount() == count, name + " counts every submit");
+        check(writer.getWrittenCount() + writer.getDroppedCount() == count, name + " writes or drops every snapshot");
+        check(writer.getWrittenCount() >= 1, name + " writes at least one snapshot");
+        check(writer.getQueuedCount() == 0, name + " queue is empty after stop");
+        check(countFiles(dir) == writer.getWrittenCount(), name + " file count matches written count");
+        check(writer.getPooledCount() <= 4, name + " pools at most capacity + 1 Mats");
+        File last = new File(dir, String.format(Locale.US, "snap_%04d.jpg", count - 1));
+        File first = new File(dir, "snap_0000.jpg");
+        if (policy == SnapshotWriter.DropPolicy.DROP_OLDEST) {
+            check(last.exists(), name + " keeps the newest snapshot");
+        } else {
+            check(first.exists(), name + " keeps the first snapshot");
+        }
+        image.release();
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+        int count = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+
+        File root = Files.createTempDirectory("snapshots").toFile();
+        for (SnapshotWriter.DropPolicy policy : SnapshotWriter.DropPolicy.values()) {
+            File dir = new File(root, policy.name().toLowerCase(Locale.US));
+            check(dir.mkdir(), "create " + dir);
+            burst(dir, policy, count);
+        }
+
+        SnapshotWriter writer = new SnapshotWriter("check");
+        writer.start();
+        Mat image = new Mat(8, 8, CvType.CV_8UC3, new Scalar(1, 2, 3));
+        writer.submit(image, new File(root, "missing/snap.jpg"));
+        check(writer.flush(2000), "flush waits for the queue to drain");
+        check(writer.getFailedCount() == 1, "a failed write is counted");
+        writer.stop();
+        image.release();
+        System.out.println("snapshots in " + root);
+    }
+}
@@ -0,0 +1,20 @@
+package org.openftc.easyopencv;
+
+import org.opencv.core.Mat;
+
+/**
+ * Desktop stand-in for EasyOpenCV's OpenCvPipeline, used only by the TeamCode frame replay
+ * build. The real class reaches into the FTC app and Android memory APIs from its
+ * initializers; this one keeps just the pipeline contract that FrameReplay drives:
+ * init() with the first frame, then processFrame() for every frame.
+ */
+public abstract class OpenCvPipeline {
+
+    public abstract Mat processFrame(Mat input);
+
+    public void onViewportTapped() {
+    }
+
+    public void init(Mat mat) {
+    }
+}
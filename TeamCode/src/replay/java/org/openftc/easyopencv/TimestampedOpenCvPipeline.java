@@ -0,0 +1,18 @@
+package org.openftc.easyopencv;
+
+import org.opencv.core.Mat;
+
+/**
+ * Desktop stand-in for EasyOpenCV's TimestampedOpenCvPipeline, used only by the TeamCode
+ * frame replay build. On the robot the camera sets the capture timestamp before each frame;
+ * replayed frames are stamped with System.nanoTime() when they are handed to the pipeline.
+ */
+public abstract class TimestampedOpenCvPipeline extends OpenCvPipeline {
+
+    @Override
+    public final Mat processFrame(Mat input) {
+        return processFrame(input, System.nanoTime());
+    }
+
+    public abstract Mat processFrame(Mat input, long captureTimeNanos);
+}